@@ -0,0 +1,72 @@
+package org.qwertech.cadenceplay;
+
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.StartTimeFilter;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowTypeFilter;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import com.uber.cadence.serviceclient.WorkflowServiceTChannel;
+import com.uber.cadence.serviceclient.WorkflowServiceTChannel.ClientOptions;
+import com.uber.cadence.serviceclient.WorkflowServiceTChannel.ClientOptions.Builder;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+import org.qwertech.cadenceplay.bulk.BulkOperation;
+import org.qwertech.cadenceplay.bulk.BulkOperationRunner;
+import org.qwertech.cadenceplay.visibility.WorkflowExecutions;
+
+/**
+ * Applies an operation to every open workflow of the type given first: {@code signal <signal name>}, {@code cancel} or {@code terminate <reason>}, e.g.
+ * {@code GreetingWorkflow::getGreeting signal GreetingWorkflow::unlockSignal}. Rerunning the same operation on the same type resumes from its checkpoint
+ * file.
+ */
+public class CadenceBulkOperationsApplication {
+
+  public static final String DOMAIN = "test-domain";
+  public static final String CADENCE_HOST = "localhost";
+  public static final int CADENCE_PORT = 7933;
+  public static final int RPC_TIMEOUT = 60_000;
+  public static final int PAGE_SIZE = 1_000;
+  public static final int CONCURRENCY = 16;
+  public static final double OPERATIONS_PER_SECOND = 200;
+  private static final String USAGE = "Usage: <workflow type> signal <signal name> | <workflow type> cancel | <workflow type> terminate [<reason>]";
+
+  public static void main(String[] args) {
+    BulkOperation operation = args.length < 2 ? null : operation(args);
+    if (operation == null) {
+      System.err.println(USAGE);
+      return;
+    }
+
+    ClientOptions clientOptions = new Builder()
+        .setRpcTimeout(RPC_TIMEOUT)
+        .build();
+    IWorkflowService wfService = new WorkflowServiceTChannel(CADENCE_HOST, CADENCE_PORT, clientOptions);
+    ListOpenWorkflowExecutionsRequest request = new ListOpenWorkflowExecutionsRequest()
+        .setDomain(DOMAIN)
+        .setMaximumPageSize(PAGE_SIZE)
+        .setTypeFilter(new WorkflowTypeFilter().setName(args[0]))
+        .setStartTimeFilter(new StartTimeFilter().setEarliestTime(0).setLatestTime(Long.MAX_VALUE));
+    try (Stream<WorkflowExecutionInfo> executions = WorkflowExecutions.open(wfService, request)) {
+      new BulkOperationRunner(wfService, DOMAIN, CONCURRENCY, OPERATIONS_PER_SECOND, BulkOperationRunner.checkpointFile(Paths.get("."), args))
+          .run(executions.map(WorkflowExecutionInfo::getExecution), operation);
+    } finally {
+      wfService.close();
+    }
+  }
+
+  /**
+   * @return null if the arguments don't make an operation
+   */
+  private static BulkOperation operation(String[] args) {
+    switch (args[1]) {
+      case "signal":
+        return args.length > 2 ? BulkOperation.signal(args[2], JacksonDataConverter.getInstance()) : null;
+      case "cancel":
+        return BulkOperation.cancel();
+      case "terminate":
+        return BulkOperation.terminate(args.length > 2 ? args[2] : "bulk terminate");
+      default:
+        return null;
+    }
+  }
+}
@@ -1,43 +1,108 @@
 package org.qwertech.cadenceplay;
 
+import com.uber.cadence.WorkflowExecution;
 import com.uber.cadence.client.WorkflowClient;
 import com.uber.cadence.client.WorkflowOptions;
 import com.uber.cadence.client.WorkflowOptions.Builder;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import com.uber.cadence.serviceclient.WorkflowServiceTChannel;
+import com.uber.cadence.worker.Worker;
 import com.uber.cadence.workflow.WorkflowMethod;
-import java.util.stream.IntStream;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import org.qwertech.cadenceplay.load.AsyncWorkflowStarter;
+import org.qwertech.cadenceplay.load.LoadGenerator;
+import org.qwertech.cadenceplay.load.LoadProfile;
+import org.qwertech.cadenceplay.load.LoadResult;
+import org.qwertech.cadenceplay.load.TaskListShards;
 
+/**
+ * Starts {@link GeneratedWorkflow}s at a target rate, e.g. {@code -Dload.rate=100 -Dload.endRate=1000 -Dload.durationSeconds=300} ramps from 100 to 1000
+ * starts per second. With {@code -Dload.endToEnd=true} it also runs a worker completing the workflows and measures end-to-end latency; otherwise the
+ * workflows stay open for the query tooling. Results go to {@code load.results}.
+ * <p>
+ * Starts are pipelined through {@link AsyncWorkflowStarter}; {@code -Dload.async=false} starts through a typed stub per workflow on {@code load.maxInFlight}
+ * threads instead.
+ * <p>
+ * {@code -Dload.shards=N} spreads the workflows over N task lists by workflow id, polled by {@link CadenceGeneratedWorkflowsWorkerApplication} processes or,
+ * in end-to-end mode, by the {@code worker.processes}-th share of them in this process.
+ */
 public class CadenceGenerateWorkflowsApplication {
 
   public static final String TASK_LIST = "GeneratedWorkflowsTaskList";
   public static final String DOMAIN = "test-domain";
-  public static final int WORKFLOWS_COUNT = 100_000;
+  public static final String WF_NAME = "GeneratedWorkflow::process";
+  //5 days
+  public static final int EXECUTION_START_TO_CLOSE_TIMEOUT_SECONDS = 5 * 24 * 60 * 60;
+  public static final double START_RATE = Double.parseDouble(System.getProperty("load.rate", "200"));
+  public static final double END_RATE = Double.parseDouble(System.getProperty("load.endRate", String.valueOf(START_RATE)));
+  public static final long DURATION_SECONDS = Long.getLong("load.durationSeconds", 500);
+  public static final int MAX_IN_FLIGHT = Integer.getInteger("load.maxInFlight", 200);
+  public static final boolean END_TO_END = Boolean.getBoolean("load.endToEnd");
+  public static final boolean ASYNC_STARTS = Boolean.parseBoolean(System.getProperty("load.async", "true"));
+  public static final String RESULTS_FILE = System.getProperty("load.results", "load-results.json");
+  public static final TaskListShards SHARDS = new TaskListShards(TASK_LIST, Integer.getInteger("load.shards", 1));
 
   public static void main(String[] args) {
+    LoadProfile profile = new LoadProfile(START_RATE, END_RATE, DURATION_SECONDS, TimeUnit.SECONDS);
 
     IWorkflowService workflowService = new WorkflowServiceTChannel();
     Utils.createDomainIfNotExists(workflowService, DOMAIN);
     WorkflowClient workflowClient = WorkflowClient.newInstance(DOMAIN);
-    try {
-      WorkflowOptions options = new Builder(new Builder().setTaskList(TASK_LIST).build()).build();
-      IntStream.range(0, WORKFLOWS_COUNT).forEach(i -> startWf(workflowClient, options));
+    Worker.Factory factory = END_TO_END
+        ? CadenceGeneratedWorkflowsWorkerApplication.startWorker(CadenceGeneratedWorkflowsWorkerApplication.PROCESS,
+        CadenceGeneratedWorkflowsWorkerApplication.PROCESSES)
+        : null;
+    ExecutorService starters = Executors.newFixedThreadPool(MAX_IN_FLIGHT);
+    WorkflowOptions options = new Builder(new Builder().setTaskList(TASK_LIST).build())
+        .setExecutionStartToCloseTimeout(Duration.ofSeconds(EXECUTION_START_TO_CLOSE_TIMEOUT_SECONDS))
+        .build();
+    try (AsyncWorkflowStarter asyncStarter = new AsyncWorkflowStarter(workflowService, DOMAIN, WF_NAME, options, JacksonDataConverter.getInstance(),
+        MAX_IN_FLIGHT)) {
+      LongFunction<CompletableFuture<WorkflowExecution>> starter = ASYNC_STARTS
+          ? i -> {
+            String workflowId = UUID.randomUUID().toString();
+            return asyncStarter.start(workflowId, SHARDS.taskListOf(workflowId));
+          }
+          : i -> CompletableFuture.supplyAsync(() -> startWf(workflowClient, options, UUID.randomUUID().toString()), starters);
+      LoadResult result = new LoadGenerator(MAX_IN_FLIGHT, 10, TimeUnit.MINUTES).run(profile, starter,
+          END_TO_END ? execution -> workflowClient.newUntypedWorkflowStub(execution, Optional.empty()).getResultAsync(String.class) : null);
+      result.writeJson(Paths.get(RESULTS_FILE));
     } finally {
+      starters.shutdownNow();
+      if (factory != null) {
+        factory.shutdown();
+      }
       workflowClient.close();
       workflowService.close();
     }
   }
 
-  private static void startWf(WorkflowClient workflowClient, WorkflowOptions options) {
-    GeneratedWorkflow wfStub = workflowClient.newWorkflowStub(GeneratedWorkflow.class, options);
-    WorkflowClient.start(wfStub::process);
+  private static WorkflowExecution startWf(WorkflowClient workflowClient, WorkflowOptions options, String workflowId) {
+    WorkflowOptions routed = new Builder(options).setWorkflowId(workflowId).setTaskList(SHARDS.taskListOf(workflowId)).build();
+    GeneratedWorkflow wfStub = workflowClient.newWorkflowStub(GeneratedWorkflow.class, routed);
+    return WorkflowClient.start(wfStub::process);
   }
 
 
   public interface GeneratedWorkflow {
 
-    //5 days
-    @WorkflowMethod(executionStartToCloseTimeoutSeconds = 5 * 24 * 60 * 60)
+    @WorkflowMethod(executionStartToCloseTimeoutSeconds = EXECUTION_START_TO_CLOSE_TIMEOUT_SECONDS)
     String process();
   }
+
+  public static class GeneratedWorkflowImpl implements GeneratedWorkflow {
+
+    @Override
+    public String process() {
+      return "done";
+    }
+  }
 }
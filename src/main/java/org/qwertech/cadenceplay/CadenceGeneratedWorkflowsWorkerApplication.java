@@ -0,0 +1,35 @@
+package org.qwertech.cadenceplay;
+
+import static org.qwertech.cadenceplay.CadenceGenerateWorkflowsApplication.DOMAIN;
+import static org.qwertech.cadenceplay.CadenceGenerateWorkflowsApplication.SHARDS;
+
+import com.uber.cadence.worker.Worker;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.qwertech.cadenceplay.CadenceGenerateWorkflowsApplication.GeneratedWorkflowImpl;
+
+/**
+ * Worker process for {@link CadenceGenerateWorkflowsApplication}, polling its share of the {@code load.shards} task lists. Run {@code worker.processes} of
+ * them with {@code -Dworker.process=0..worker.processes-1} to see how throughput scales with worker processes; by default one process polls all shards.
+ */
+@Slf4j
+public class CadenceGeneratedWorkflowsWorkerApplication {
+
+  public static final int PROCESS = Integer.getInteger("worker.process", 0);
+  public static final int PROCESSES = Integer.getInteger("worker.processes", 1);
+
+  public static void main(String[] args) {
+    startWorker(PROCESS, PROCESSES);
+  }
+
+  public static Worker.Factory startWorker(int process, int processes) {
+    List<String> taskLists = SHARDS.assignedTo(process, processes);
+    Worker.Factory factory = new Worker.Factory(DOMAIN);
+    for (String taskList : taskLists) {
+      factory.newWorker(taskList).registerWorkflowImplementationTypes(GeneratedWorkflowImpl.class);
+    }
+    factory.start();
+    log.info("[startWorker] process {} of {} polls {}", process, processes, taskLists);
+    return factory;
+  }
+}
@@ -0,0 +1,36 @@
+package org.qwertech.cadenceplay;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import java.io.IOException;
+
+/**
+ * Reads string values straight from the parser's character buffer into a {@link StringTable}. Coercions from other tokens are left to Jackson.
+ */
+class CanonicalizingStringDeserializer extends StdScalarDeserializer<String> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient StringTable table;
+
+  CanonicalizingStringDeserializer(StringTable table) {
+    super(String.class);
+    this.table = table;
+  }
+
+  @Override
+  public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.hasToken(JsonToken.VALUE_STRING)) {
+      return table.canonicalize(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+    }
+    return StringDeserializer.instance.deserialize(p, ctxt);
+  }
+
+  @Override
+  public boolean isCachable() {
+    return true;
+  }
+}
@@ -17,6 +17,7 @@ import java.util.Properties;
 import java.util.UUID;
 import lombok.Data;
 import org.apache.thrift.TException;
+import org.qwertech.cadenceplay.codegen.CompiledPayload;
 
 public class ExecuteWorkflowSimple {
 
@@ -44,6 +45,7 @@ public class ExecuteWorkflowSimple {
   }
 
   @Data
+  @CompiledPayload
   public static class OsagoSubjectObjectCheckRequest implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -56,6 +58,7 @@ public class ExecuteWorkflowSimple {
   }
 
   @Data
+  @CompiledPayload
   public static class OsagoSubjectObjectCheckResponse implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -68,6 +71,7 @@ public class ExecuteWorkflowSimple {
   }
 
   @Data
+  @CompiledPayload
   public static class FlkReport implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -77,6 +81,7 @@ public class ExecuteWorkflowSimple {
   }
 
   @Data
+  @CompiledPayload
   public static class Mismatch implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -8,7 +8,6 @@ package org.qwertech.cadenceplay;
 import com.uber.cadence.DomainAlreadyExistsError;
 import com.uber.cadence.RegisterDomainRequest;
 import com.uber.cadence.activity.ActivityMethod;
-import com.uber.cadence.internal.worker.PollerOptions.Builder;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import com.uber.cadence.serviceclient.WorkflowServiceTChannel;
 import com.uber.cadence.worker.Worker;
@@ -17,26 +16,39 @@ import com.uber.cadence.workflow.QueryMethod;
 import com.uber.cadence.workflow.SignalMethod;
 import com.uber.cadence.workflow.Workflow;
 import com.uber.cadence.workflow.WorkflowMethod;
+import java.time.Duration;
 import lombok.SneakyThrows;
+import org.qwertech.cadenceplay.tuning.StickyCacheEvictor;
+import org.qwertech.cadenceplay.tuning.TuningBounds;
+import org.qwertech.cadenceplay.tuning.WorkerAutoTuner;
+import org.qwertech.cadenceplay.tuning.WorkflowThreadMonitor;
 
 public class HelloAwaitingActivity {
 
+  private static final int MAX_WORKFLOW_THREAD_COUNT = 5;
+
   private static String domain;
   private static Worker worker;
 
   public static void main(String[] args) {
     domain = "test-domain";
-    domain();
+    WorkerAutoTuner tuner = new WorkerAutoTuner(domain(), new TuningBounds(1, 4, 1, 5), new TuningBounds(1, 4, 1, 20), Duration.ofSeconds(1));
+    WorkflowThreadMonitor monitor = new WorkflowThreadMonitor(MAX_WORKFLOW_THREAD_COUNT);
+    StickyCacheEvictor evictor = new StickyCacheEvictor(tuner.getService(), domain, monitor, 1);
 
     Worker.FactoryOptions.Builder foBuilder = new Worker.FactoryOptions.Builder()
-        .setMaxWorkflowThreadCount(5)
-        .setStickyWorkflowPollerOptions(new Builder().setPollThreadCount(1).build());
+        .setMaxWorkflowThreadCount(MAX_WORKFLOW_THREAD_COUNT)
+        .setStickyWorkflowPollerOptions(tuner.stickyPollerOptions());
 
-    final Factory factory = new Factory(domain, foBuilder.build());
-    worker = factory.newWorker(HelloAwaitingActivity.TASK_LIST);
+    final Factory factory = new Factory(evictor.getService(), domain, foBuilder.build());
+    evictor.attach(factory);
+    worker = factory.newWorker(HelloAwaitingActivity.TASK_LIST, tuner.workerOptions());
     worker.registerWorkflowImplementationTypes(HelloAwaitingActivity.GreetingWorkflowImpl.class);
     worker.registerActivitiesImplementations(new HelloAwaitingActivity.GreetingActivitiesImpl());
     factory.start();
+    tuner.start(Duration.ofSeconds(10));
+    monitor.start(Duration.ofSeconds(10));
+    evictor.start(Duration.ofSeconds(1));
   }
 
   @SneakyThrows
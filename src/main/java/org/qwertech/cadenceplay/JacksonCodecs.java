@@ -0,0 +1,75 @@
+package org.qwertech.cadenceplay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.Getter;
+
+/**
+ * Readers and writers of a single {@link ObjectMapper}, resolved once per payload type and kept for the lifetime of the converter.
+ */
+class JacksonCodecs {
+
+  /**
+   * Shared by all codecs: a thread writes one payload at a time.
+   */
+  private static final ThreadLocal<ReusableOutputStream> OUTPUT = ThreadLocal.withInitial(ReusableOutputStream::new);
+
+  @Getter
+  private final ObjectMapper mapper;
+  private final ObjectWriter multipleValuesWriter;
+
+  /**
+   * Keyed by {@link Type} rather than {@link Class} because workflow arguments can be parameterized.
+   */
+  private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+  /**
+   * Keyed by the runtime class of a serialized value.
+   */
+  private final ClassValue<ObjectWriter> writers = new ClassValue<ObjectWriter>() {
+    @Override
+    protected ObjectWriter computeValue(Class<?> type) {
+      return mapper.writerFor(type);
+    }
+  };
+
+  JacksonCodecs(ObjectMapper mapper) {
+    this.mapper = mapper;
+    this.multipleValuesWriter = mapper.writerFor(Object[].class);
+  }
+
+  ObjectReader readerFor(Type valueType) {
+    ObjectReader reader = readers.get(valueType);
+    if (reader == null) {
+      reader = readers.computeIfAbsent(valueType, type -> mapper.readerFor(mapper.constructType(type)));
+    }
+    return reader;
+  }
+
+  byte[] write(Object value) throws IOException {
+    return write(writers.get(value.getClass()), value);
+  }
+
+  byte[] writeMultiple(Object[] values) throws IOException {
+    return write(multipleValuesWriter, values);
+  }
+
+  /**
+   * Writes through the thread's reusable buffer, so the only allocation per call is the returned array. Jackson's own generator buffers are recycled by its
+   * {@link com.fasterxml.jackson.core.util.BufferRecycler}.
+   */
+  private static byte[] write(ObjectWriter writer, Object value) throws IOException {
+    ReusableOutputStream output = OUTPUT.get();
+    try {
+      writer.writeValue(output, value);
+      return output.toByteArray();
+    } finally {
+      output.reset();
+    }
+  }
+}
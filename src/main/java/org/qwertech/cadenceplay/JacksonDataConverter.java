@@ -4,13 +4,16 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
 import com.google.common.base.Defaults;
 import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
 import com.uber.cadence.ActivityType;
 import com.uber.cadence.common.RetryOptions;
 import com.uber.cadence.converter.DataConverter;
@@ -18,6 +21,7 @@ import com.uber.cadence.converter.DataConverterException;
 import com.uber.cadence.converter.JsonDataConverter;
 import com.uber.cadence.workflow.ActivityFailureException;
 import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -27,41 +31,83 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.qwertech.cadenceplay.codegen.CompiledPayload;
+import org.qwertech.cadenceplay.codegen.CompiledPayloadModule;
 
 /**
  * 1. Uses Jackson instead of Gson in JsonDataConverter 2. Uses Gson in single argument calls to work around problems with jackson (client version 2.5.1) a.
  * LocalActivityMarkerHeader in method com.uber.cadence.internal.common.LocalActivityMarkerData#fromEventAttributes(com.uber.cadence.MarkerRecordedEventAttributes,
- * com.uber.cadence.converter.DataConverter)
+ * com.uber.cadence.converter.DataConverter) 3. Optionally writes Smile instead of JSON, see {@link PayloadFormat} 4. Uses generated codecs for {@link
+ * CompiledPayload} classes 5. Optionally canonicalizes decoded strings, see {@link StringTable}
  */
 @Slf4j
 public class JacksonDataConverter implements DataConverter {
 
   private static final ObjectMapper DEFAULT_JACKSON = getDefaultJackson();
+  private static final ObjectMapper DEFAULT_SMILE_JACKSON = getDefaultSmileJackson();
   private static final DataConverter INSTANCE = new JacksonDataConverter();
+  private static final DataConverter SMILE_INSTANCE = new JacksonDataConverter(DEFAULT_JACKSON, DEFAULT_SMILE_JACKSON, PayloadFormat.SMILE);
   private static final Set<String> GSON_FALLBACK_CLASSES = Sets.newHashSet(
       "com.uber.cadence.internal.common.LocalActivityMarkerData.LocalActivityMarkerHeader"
   );
 
+  private static final ClassValue<Boolean> GSON_FALLBACK = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return GSON_FALLBACK_CLASSES.contains(type.getCanonicalName());
+    }
+  };
+
   private static final DataConverter GSON_CONVERTER = JsonDataConverter.getInstance();
   public static final String MARKER_HEADER = "com.uber.cadence.internal.replay.MarkerHandler$MarkerData$MarkerHeader";
 
-  private final ObjectMapper jackson;
+  private final JacksonCodecs json;
+  private final JacksonCodecs smile;
+  private final JacksonCodecs output;
 
   private boolean logTestMode;
 
   @SneakyThrows
   public JacksonDataConverter(ObjectMapper jackson) {
-    this.jackson = jackson;
+    this(jackson, DEFAULT_SMILE_JACKSON, PayloadFormat.JSON);
+  }
+
+  /**
+   * @param smileJackson mapper backed by a {@link SmileFactory}, used to read Smile payloads and to write them when {@code writeFormat} is {@link
+   * PayloadFormat#SMILE}
+   * @param writeFormat format of produced payloads. Payloads of both formats are always readable.
+   */
+  public JacksonDataConverter(ObjectMapper jackson, ObjectMapper smileJackson, PayloadFormat writeFormat) {
+    this.json = new JacksonCodecs(jackson);
+    this.smile = new JacksonCodecs(smileJackson);
+    this.output = writeFormat == PayloadFormat.SMILE ? smile : json;
   }
 
   private JacksonDataConverter() {
     this(DEFAULT_JACKSON);
   }
 
+  /**
+   * Converter that canonicalizes decoded string values through {@code table}, so values repeated across cached workflows share one instance.
+   */
+  public static JacksonDataConverter withStringTable(StringTable table, PayloadFormat writeFormat) {
+    return new JacksonDataConverter(
+        getDefaultJackson().registerModule(table.module()),
+        getDefaultSmileJackson().registerModule(table.module()),
+        writeFormat);
+  }
+
   public static DataConverter getInstance() {
     return INSTANCE;
   }
 
+  /**
+   * Converter that writes Smile payloads and still reads JSON written by {@link #getInstance()} or by the Gson fallback.
+   */
+  public static DataConverter getSmileInstance() {
+    return SMILE_INSTANCE;
+  }
+
   @Override
   public byte[] toData(Object... values) throws DataConverterException {
     if (values == null || values.length == 0) {
@@ -71,9 +117,11 @@ public class JacksonDataConverter implements DataConverter {
       if (values.length == 1) {
         return values[0] == null ? null : toDataSingleValue(values[0]);
       }
-      byte[] json = jackson.writeValueAsBytes(values);
-      logToDataMultipleValuesResult(json, values);
-      return json;
+      byte[] data = output.writeMultiple(values);
+      if (isTraceEnabled()) {
+        logToDataMultipleValuesResult(data, values);
+      }
+      return data;
     } catch (Exception e) {
       throw new DataConverterException(e);
     }
@@ -87,14 +135,15 @@ public class JacksonDataConverter implements DataConverter {
     if (needFallbackToGson(valueClass)) {
       return fromDataGson(content, valueClass, valueType);
     }
+    if (valueClass == LazyPayload.class) {
+      return valueClass.cast(lazyPayload(content, valueType != null ? valueType : valueClass));
+    }
 
     try {
-      logFromDataCall(content, valueClass, valueType);
-      if (valueType != null) {
-        JavaType javaType = jackson.constructType(valueType);
-        return jackson.readValue(content, javaType);
+      if (isTraceEnabled()) {
+        logFromDataCall(content, valueClass, valueType);
       }
-      return jackson.readValue(content, valueClass);
+      return codecsFor(content).readerFor(valueType != null ? valueType : valueClass).readValue(content);
     } catch (Exception e) {
       throw new DataConverterException(content, new Type[]{valueType}, e);
     }
@@ -115,151 +164,208 @@ public class JacksonDataConverter implements DataConverter {
         return new Object[]{result};
       }
 
-      logFromDataArrayCall(content, valueTypes);
-      final JsonNode element = jackson.readTree(content);
-      return getObjectsFromJsonNodeElements(element, valueTypes);
+      if (isTraceEnabled()) {
+        logFromDataArrayCall(content, valueTypes);
+      }
+      return fromDataArrayMultipleTypes(content, valueTypes);
     } catch (Exception e) {
       throw new DataConverterException(content, valueTypes, e);
     }
   }
 
-  private static ObjectMapper getDefaultJackson() {
+  public static ObjectMapper getDefaultJackson() {
     return new ObjectMapper()
         .enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
-        .setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+        .registerModule(new CompiledPayloadModule());
   }
 
-  private Object[] getObjectsFromJsonNodeElements(JsonNode element, Type... valueTypes) {
-    ArrayNode array;
-    if (element instanceof ArrayNode) {
-      array = (ArrayNode) element;
-    } else {
-      array = jackson.createArrayNode();
-      array.add(element);
-    }
+  public static ObjectMapper getDefaultSmileJackson() {
+    SmileFactory smileFactory = new SmileFactory()
+        .enable(SmileGenerator.Feature.WRITE_HEADER)
+        .enable(SmileParser.Feature.REQUIRE_HEADER);
+    return new ObjectMapper(smileFactory)
+        .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+        .registerModule(new CompiledPayloadModule());
+  }
 
+  private JacksonCodecs codecsFor(byte[] content) {
+    return PayloadFormat.of(content) == PayloadFormat.SMILE ? smile : json;
+  }
+
+  /**
+   * Binds every element of the top-level array straight to its argument type without building a {@link JsonNode} tree first. A non-array document is treated
+   * as the first argument, missing trailing arguments get default values and extra elements are ignored.
+   */
+  private Object[] fromDataArrayMultipleTypes(byte[] content, Type... valueTypes) throws IOException {
     Object[] result = new Object[valueTypes.length];
-    for (int i = 0; i < valueTypes.length; i++) {
-
-      if (i >= array.size()) {
-        Type t = valueTypes[i];
-        if (t instanceof Class) {
-          result[i] = Defaults.defaultValue((Class<?>) t);
-        } else {
-          result[i] = null;
+    int parsed = 0;
+    JacksonCodecs codecs = codecsFor(content);
+    try (JsonParser parser = codecs.getMapper().getFactory().createParser(content)) {
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        while (parsed < valueTypes.length) {
+          Type valueType = valueTypes[parsed];
+          boolean lazy = isLazyPayload(valueType);
+          long previousEnd = lazy ? parser.getCurrentLocation().getByteOffset() : -1;
+          if (parser.nextToken() == JsonToken.END_ARRAY) {
+            break;
+          }
+          result[parsed] = lazy ? readLazyElement(codecs, parser, content, (int) previousEnd, valueType) : codecs.readerFor(valueType).readValue(parser);
+          parsed++;
         }
+      } else if (token != null) {
+        result[parsed] = isLazyPayload(valueTypes[0]) ? lazyPayload(content, valueTypes[0]) : codecs.readerFor(valueTypes[0]).readValue(parser);
+        parsed++;
+      }
+    }
+    for (int i = parsed; i < valueTypes.length; i++) {
+      Type t = valueTypes[i];
+      if (t instanceof Class) {
+        result[i] = Defaults.defaultValue((Class<?>) t);
       } else {
-        final JavaType javaType = jackson.constructType(valueTypes[i]);
-        final JsonNode jsonNode = array.get(i);
-        result[i] = jackson.convertValue(jsonNode, javaType);
+        result[i] = null;
       }
     }
     return result;
   }
 
+  /**
+   * Cuts the element out of JSON content without binding it. Smile values can refer back to names and strings seen earlier in the document, so a Smile element
+   * is re-encoded as a standalone document instead.
+   */
+  private LazyPayload<?> readLazyElement(JacksonCodecs codecs, JsonParser parser, byte[] content, int previousEnd, Type lazyType) throws IOException {
+    if (codecs == smile) {
+      ObjectMapper mapper = codecs.getMapper();
+      return lazyPayload(mapper.writeValueAsBytes(mapper.readTree(parser)), lazyType);
+    }
+    int start = previousEnd;
+    while (content[start] == ',' || content[start] <= ' ') {
+      start++;
+    }
+    parser.skipChildren();
+    parser.finishToken();
+    int end = (int) parser.getCurrentLocation().getByteOffset();
+    return lazyPayload(Arrays.copyOfRange(content, start, end), lazyType);
+  }
+
+  @SuppressWarnings("unchecked")
+  private LazyPayload<?> lazyPayload(byte[] content, Type lazyType) {
+    Type valueType = lazyType instanceof ParameterizedType ? ((ParameterizedType) lazyType).getActualTypeArguments()[0] : Object.class;
+    Class<Object> valueClass = (Class<Object>) (Class<?>) TypeToken.of(valueType).getRawType();
+    return new LazyPayload<>(content, this, valueClass, valueType);
+  }
+
+  private static boolean isLazyPayload(Type type) {
+    return type == LazyPayload.class || type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == LazyPayload.class;
+  }
+
   private Object fromDataArrayBySingleType(byte[] content, Type valueType) throws IOException {
-    logFromDataArraySingleTypeCall(content, valueType);
-    final JavaType javaType = jackson.constructType(valueType);
-    return jackson.readValue(content, javaType);
+    if (isTraceEnabled()) {
+      logFromDataArraySingleTypeCall(content, valueType);
+    }
+    if (isLazyPayload(valueType)) {
+      return lazyPayload(content, valueType);
+    }
+    return codecsFor(content).readerFor(valueType).readValue(content);
   }
 
-  private byte[] toDataSingleValue(Object value) throws JsonProcessingException {
-    if (value != null && needFallbackToGson(value.getClass())) {
+  private byte[] toDataSingleValue(Object value) throws IOException {
+    if (value instanceof LazyPayload) {
+      LazyPayload<?> payload = (LazyPayload<?>) value;
+      if (payload.getContent() != null && !payload.isDecoded()) {
+        return payload.getContent();
+      }
+      return payload.get() == null ? null : toDataSingleValue(payload.get());
+    }
+    if (needFallbackToGson(value.getClass())) {
       return toDataGson(value);
     }
-    final byte[] json = jackson.writeValueAsBytes(value);
-    logToDataSingleValueResult(json, value);
-    return json;
+    final byte[] data = output.write(value);
+    if (isTraceEnabled()) {
+      logToDataSingleValueResult(data, value);
+    }
+    return data;
   }
 
   private byte[] toDataGson(Object... values) throws DataConverterException {
     final byte[] bytes = GSON_CONVERTER.toData(values);
-    logToDataGsonResult(bytes, values);
+    if (isTraceEnabled()) {
+      logToDataGsonResult(bytes, values);
+    }
     return bytes;
   }
 
   private <T> T fromDataGson(byte[] content, Class<T> valueClass, Type valueType) {
-    logFromDataGsonCall(content, valueClass, valueType);
+    if (isTraceEnabled()) {
+      logFromDataGsonCall(content, valueClass, valueType);
+    }
     return GSON_CONVERTER.fromData(content, valueClass, valueClass);
   }
 
   private <T> boolean needFallbackToGson(Class<T> valueClass) {
-    return GSON_FALLBACK_CLASSES.contains(valueClass.getCanonicalName());
+    return GSON_FALLBACK.get(valueClass);
   }
 
   // LOGGING
   // toData
 
   private void logToDataGsonResult(byte[] bytes, Object[] values) {
-    if (isTraceEnabled()) {
-      final List<String> classes = getSimpleClassNames(values);
-      log.trace(
-          "[toData] fall back to Gson DataConverter, values of classes: {}, result: {}",
-          classes, bytesToString(bytes));
-    }
+    final List<String> classes = getSimpleClassNames(values);
+    log.trace(
+        "[toData] fall back to Gson DataConverter, values of classes: {}, result: {}",
+        classes, bytesToString(bytes));
   }
 
   private void logToDataMultipleValuesResult(byte[] json, Object[] values) {
-    if (isTraceEnabled()) {
-      final List<String> classes = getSimpleClassNames(values);
-      log.trace("[toData] operation result for values of classes {}: '{}'", classes, bytesToString(json));
-    }
+    final List<String> classes = getSimpleClassNames(values);
+    log.trace("[toData] operation result for values of classes {}: '{}'", classes, bytesToString(json));
   }
 
   private void logToDataSingleValueResult(byte[] json, Object value) {
-    if (isTraceEnabled()) {
-      log.trace(
-          "[toData] result for single value of class {}: '{}'",
-          Optional.ofNullable(value)
-              .map(Object::getClass)
-              .map(Class::getCanonicalName)
-              .orElse("null value.no class info"), bytesToString(json)
-      );
-    }
+    log.trace(
+        "[toData] result for single value of class {}: '{}'",
+        Optional.ofNullable(value)
+            .map(Object::getClass)
+            .map(Class::getCanonicalName)
+            .orElse("null value.no class info"), bytesToString(json)
+    );
   }
 
   // fromData
 
   private <T> void logFromDataGsonCall(byte[] content, Class<T> valueClass, Type valueType) {
-    if (isTraceEnabled()) {
-      final String contentJson = bytesToString(content);
-      log.trace(
-          "[fromData] fall back to Gson DataConverter for class: {}[{}], content: {}",
-          valueClass, valueType, contentJson
-      );
-    }
+    final String contentJson = bytesToString(content);
+    log.trace(
+        "[fromData] fall back to Gson DataConverter for class: {}[{}], content: {}",
+        valueClass, valueType, contentJson
+    );
   }
 
   private <T> void logFromDataCall(byte[] content, Class<T> valueClass, Type valueType) {
-    if (isTraceEnabled()) {
-      final String contentJson = bytesToString(content);
-      log.trace(
-          "[fromData] processing class: {}|{}, content: {}",
-          valueClass, valueType, contentJson
-      );
-    }
+    final String contentJson = bytesToString(content);
+    log.trace(
+        "[fromData] processing class: {}|{}, content: {}",
+        valueClass, valueType, contentJson
+    );
   }
 
   // fromDataArray
 
   private void logFromDataArrayCall(byte[] content, Type[] valueTypes) {
-    if (isTraceEnabled()) {
-      final String contentJson = bytesToString(content);
-      log.trace(
-          "[fromDataArray] processing types: {}, content: {}",
-          valueTypes, contentJson
-      );
-    }
+    final String contentJson = bytesToString(content);
+    log.trace(
+        "[fromDataArray] processing types: {}, content: {}",
+        valueTypes, contentJson
+    );
   }
 
   private void logFromDataArraySingleTypeCall(byte[] content, Type valueType) {
-    if (isTraceEnabled()) {
-      final String contentJson = bytesToString(content);
-      log.trace(
-          "[fromDataArray] processing single type: {}, content: '{}'",
-          valueType, contentJson
-      );
-    }
+    final String contentJson = bytesToString(content);
+    log.trace(
+        "[fromDataArray] processing single type: {}, content: '{}'",
+        valueType, contentJson
+    );
   }
 
   private List<String> getSimpleClassNames(Object[] values) {
@@ -271,6 +377,9 @@ public class JacksonDataConverter implements DataConverter {
   }
 
   private String bytesToString(byte[] content) {
+    if (PayloadFormat.of(content) == PayloadFormat.SMILE) {
+      return "<smile, " + content.length + " bytes>";
+    }
     return new String(content, StandardCharsets.UTF_8);
   }
 
@@ -280,7 +389,7 @@ public class JacksonDataConverter implements DataConverter {
 
 
   private boolean isTraceEnabled() {
-    return log.isTraceEnabled() || logTestMode;
+    return logTestMode || log.isTraceEnabled();
   }
 
 
@@ -0,0 +1,65 @@
+package org.qwertech.cadenceplay;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.uber.cadence.converter.DataConverter;
+import java.lang.reflect.Type;
+
+/**
+ * Workflow or activity argument/result that {@link JacksonDataConverter} doesn't decode until {@link #get()} is called. When passed back to {@code toData}
+ * before {@link #get()}, the original bytes are written as is, so a workflow that only hands a large input over to an activity or a child workflow skips both decoding and
+ * encoding of it on every replay.
+ * <p>
+ * Supported as a top-level argument or result type, e.g. {@code void process(String id, LazyPayload<FlkReport> report)}. Not thread-safe.
+ */
+@JsonSerialize(using = LazyPayloadSerializer.class)
+public final class LazyPayload<T> {
+
+  private final byte[] content;
+  private final DataConverter converter;
+  private final Class<T> valueClass;
+  private final Type valueType;
+
+  private T value;
+  private boolean decoded;
+
+  LazyPayload(byte[] content, DataConverter converter, Class<T> valueClass, Type valueType) {
+    this.content = content;
+    this.converter = converter;
+    this.valueClass = valueClass;
+    this.valueType = valueType;
+  }
+
+  private LazyPayload(T value) {
+    this(null, null, null, null);
+    this.value = value;
+    this.decoded = true;
+  }
+
+  public static <T> LazyPayload<T> of(T value) {
+    return new LazyPayload<>(value);
+  }
+
+  public T get() {
+    if (!decoded) {
+      value = converter.fromData(content, valueClass, valueType);
+      decoded = true;
+    }
+    return value;
+  }
+
+  public boolean isDecoded() {
+    return decoded;
+  }
+
+  /**
+   * @return encoded payload this instance was read from, {@code null} if it was created with {@link #of(Object)}
+   */
+  byte[] getContent() {
+    return content;
+  }
+
+  @Override
+  public String toString() {
+    return decoded ? "LazyPayload[" + value + "]" : "LazyPayload[" + content.length + " bytes]";
+  }
+}
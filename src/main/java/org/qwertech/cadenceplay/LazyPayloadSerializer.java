@@ -0,0 +1,47 @@
+package org.qwertech.cadenceplay;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a {@link LazyPayload} nested in a multi-value payload. Undecoded JSON goes to a JSON generator as a raw value, any other combination is copied token
+ * by token without binding to the value type.
+ */
+class LazyPayloadSerializer extends StdSerializer<LazyPayload<?>> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory().enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES);
+  private static final JsonFactory SMILE_FACTORY = new SmileFactory();
+
+  @SuppressWarnings("unchecked")
+  LazyPayloadSerializer() {
+    super((Class<LazyPayload<?>>) (Class<?>) LazyPayload.class);
+  }
+
+  @Override
+  public void serialize(LazyPayload<?> payload, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    byte[] content = payload.getContent();
+    if (content == null || payload.isDecoded()) {
+      provider.defaultSerializeValue(payload.get(), gen);
+      return;
+    }
+    PayloadFormat format = PayloadFormat.of(content);
+    if (format == PayloadFormat.JSON && gen instanceof JsonGeneratorImpl) {
+      gen.writeRawValue(new String(content, StandardCharsets.UTF_8));
+      return;
+    }
+    JsonFactory factory = format == PayloadFormat.SMILE ? SMILE_FACTORY : JSON_FACTORY;
+    try (JsonParser parser = factory.createParser(content)) {
+      parser.nextToken();
+      gen.copyCurrentStructure(parser);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package org.qwertech.cadenceplay;
+
+/**
+ * Encoding of a payload written by {@link JacksonDataConverter}. The format of existing data is recognized by its first bytes, so switching the written format
+ * never breaks decoding of histories recorded earlier.
+ */
+public enum PayloadFormat {
+
+  /**
+   * Plain JSON text. Also covers payloads written by the Gson fallback.
+   */
+  JSON,
+
+  /**
+   * Jackson Smile binary JSON. Always written with its standard {@code ":)\n"} header, which can never start a JSON document.
+   */
+  SMILE;
+
+  private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+  public static PayloadFormat of(byte[] content) {
+    if (content.length < SMILE_HEADER.length) {
+      return JSON;
+    }
+    for (int i = 0; i < SMILE_HEADER.length; i++) {
+      if (content[i] != SMILE_HEADER[i]) {
+        return JSON;
+      }
+    }
+    return SMILE;
+  }
+}
@@ -0,0 +1,50 @@
+package org.qwertech.cadenceplay;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable in-memory stream meant to be reused by one thread for many writes. Unlike {@link java.io.ByteArrayOutputStream} it is not synchronized, and a
+ * buffer that grew beyond {@link #MAX_RETAINED_BYTES} is dropped on {@link #reset()} so a single huge payload doesn't stay pinned to the thread.
+ */
+class ReusableOutputStream extends OutputStream {
+
+  private static final int INITIAL_BYTES = 4 * 1024;
+  private static final int MAX_RETAINED_BYTES = 256 * 1024;
+
+  private byte[] buffer = new byte[INITIAL_BYTES];
+  private int count;
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(count + 1);
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(count + len);
+    System.arraycopy(b, off, buffer, count, len);
+    count += len;
+  }
+
+  /**
+   * @return a right-sized copy of written bytes
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, count);
+  }
+
+  void reset() {
+    count = 0;
+    if (buffer.length > MAX_RETAINED_BYTES) {
+      buffer = new byte[INITIAL_BYTES];
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length << 1));
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.qwertech.cadenceplay;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded canonicalizing table for strings decoded from payloads, so that workflow ids, account numbers and codes repeated across cached workflows share one
+ * instance. Direct-mapped: a string replaces whatever occupied its slot, so memory stays bounded and lookups never lock. Strings longer than {@code maxLength}
+ * are unlikely to repeat and are not cached.
+ */
+public class StringTable {
+
+  public static final int DEFAULT_SLOTS = 64 * 1024;
+  public static final int DEFAULT_MAX_LENGTH = 64;
+
+  private final String[] slots;
+  private final int mask;
+  private final int maxLength;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+
+  public StringTable() {
+    this(DEFAULT_SLOTS, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * @param slots rounded up to a power of two
+   */
+  public StringTable(int slots, int maxLength) {
+    int size = Integer.highestOneBit(Math.max(slots - 1, 1)) << 1;
+    this.slots = new String[size];
+    this.mask = size - 1;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Returns the cached instance equal to the given characters, so a hit doesn't allocate a new {@link String} at all.
+   */
+  public String canonicalize(char[] chars, int offset, int length) {
+    if (length > maxLength) {
+      skipped.increment();
+      return new String(chars, offset, length);
+    }
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int index = (hash ^ (hash >>> 16)) & mask;
+    String cached = slots[index];
+    if (cached != null && matches(cached, chars, offset, length)) {
+      hits.increment();
+      return cached;
+    }
+    String value = new String(chars, offset, length);
+    slots[index] = value;
+    misses.increment();
+    return value;
+  }
+
+  /**
+   * Deserializes every JSON string value through this table.
+   */
+  public Module module() {
+    return new SimpleModule(StringTable.class.getSimpleName())
+        .addDeserializer(String.class, new CanonicalizingStringDeserializer(this));
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRate() {
+    long hits = getHits();
+    long lookups = hits + getMisses();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public int getSize() {
+    int size = 0;
+    for (String slot : slots) {
+      if (slot != null) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("hits=%d, misses=%d, skipped=%d, hitRate=%.3f, size=%d/%d",
+        getHits(), getMisses(), skipped.sum(), getHitRate(), getSize(), slots.length);
+  }
+
+  private static boolean matches(String cached, char[] chars, int offset, int length) {
+    if (cached.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (cached.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -14,16 +14,22 @@ import com.uber.cadence.workflow.SignalMethod;
 import com.uber.cadence.workflow.Workflow;
 import com.uber.cadence.workflow.WorkflowMethod;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
 import org.apache.thrift.TException;
+import org.qwertech.cadenceplay.query.CoalescingQueryClient;
+import org.qwertech.cadenceplay.subscription.LocalStateListeners;
+import org.qwertech.cadenceplay.subscription.StatePublisher;
 import org.slf4j.Logger;
 
 public class WorkflowUpdateAndQuery {
 
   public static final String TEST_DOMAIN = "test-domain";
   public static final String TASK_LIST = "HelloWorldTaskList";
+  public static final String STATE_CHANGED_SIGNAL = "stateChanged";
   private static final WorkflowOptions WORKFLOW_OPTIONS = new Builder().setTaskList(TASK_LIST).build();
   private static Logger logger = Workflow.getLogger(WorkflowUpdateAndQuery.class);
 
@@ -53,9 +59,13 @@ public class WorkflowUpdateAndQuery {
     Worker worker = factory.newWorker(TASK_LIST);
     worker.registerWorkflowImplementationTypes(LongWorkflowImpl.class, ShortWorkflowImpl.class);
     WorkflowClient workflowClient = WorkflowClient.newInstance(TEST_DOMAIN);
-    worker.registerActivitiesImplementations(new ConnectorActivityImpl(workflowClient));
+    LocalStateListeners listeners = new LocalStateListeners(JacksonDataConverter.getInstance());
+    worker.registerActivitiesImplementations(new ConnectorActivityImpl(new CoalescingQueryClient(workflowClient, 1000, 200, TimeUnit.MILLISECONDS)),
+        listeners);
     factory.start();
     String longWorkflowId = "someVeryLongWorkflowId_"+ UUID.randomUUID();
+    listeners.listen(longWorkflowId, SomeState.class,
+        change -> System.out.println(String.format("I'm local listener and I've got version %d: %s", change.getVersion(), change.getValue().getSomeData())));
 
     new Thread(() -> runShortWorkflow(workflowClient, longWorkflowId)).start();
 
@@ -75,6 +85,7 @@ public class WorkflowUpdateAndQuery {
   @SneakyThrows
   private static void runShortWorkflow(WorkflowClient workflowClient, String longWorkflowId) {
     Thread.sleep(3_000);
+    workflowClient.newWorkflowStub(LongWorkflow.class, longWorkflowId).subscribe(StatePublisher.LOCAL_SUBSCRIBER);
     ShortWorkflow shortWorkflow = workflowClient.newWorkflowStub(ShortWorkflow.class, WORKFLOW_OPTIONS);
     SomeState someStateFromLongWorkflow = shortWorkflow.getStateFromLong(longWorkflowId);
     Thread.sleep(3_000);
@@ -102,19 +113,38 @@ public class WorkflowUpdateAndQuery {
     @SignalMethod
     void update(String someNewData);
 
+    /**
+     * @param workflowId workflow to signal with every new state, or {@link StatePublisher#LOCAL_SUBSCRIBER}
+     */
+    @SignalMethod
+    void subscribe(String workflowId);
+
+    @SignalMethod
+    void unsubscribe(String workflowId);
+
     @QueryMethod
     SomeState getState();
   }
 
   public static class LongWorkflowImpl implements LongWorkflow {
 
+    private static final String PUBLISH_STATE = "publishState";
+
     private final GettingStartedActivities.HelloWorldActivities activities = Workflow.newActivityStub(GettingStartedActivities.HelloWorldActivities.class);
     private final SomeState state = new SomeState("someInitialData");
+    private final StatePublisher<SomeState> publisher = new StatePublisher<>(STATE_CHANGED_SIGNAL, JacksonDataConverter.getInstance(), state);
 
     @Override
     public void startLongProcess() {
       System.out.println("I'm long workflow and I'm started");
-      Workflow.await(() -> state.getSomeData().equals("ByeData"));
+      if (Workflow.getVersion(PUBLISH_STATE, Workflow.DEFAULT_VERSION, 1) == Workflow.DEFAULT_VERSION) {
+        Workflow.await(() -> state.getSomeData().equals("ByeData"));
+      } else {
+        do {
+          Workflow.await(publisher::isPending);
+          publisher.publish();
+        } while (!state.getSomeData().equals("ByeData"));
+      }
       System.out.println("I'm long workflow and I'm done");
     }
 
@@ -122,6 +152,17 @@ public class WorkflowUpdateAndQuery {
     public void update(String someNewData) {
       System.out.println(String.format("I'm long workflow and I've got new data %s", someNewData));
       state.setSomeData(someNewData);
+      publisher.update(state);
+    }
+
+    @Override
+    public void subscribe(String workflowId) {
+      publisher.subscribe(workflowId);
+    }
+
+    @Override
+    public void unsubscribe(String workflowId) {
+      publisher.unsubscribe(workflowId);
     }
 
     @Override
@@ -135,6 +176,9 @@ public class WorkflowUpdateAndQuery {
 
     @WorkflowMethod(executionStartToCloseTimeoutSeconds = 3)
     SomeState getStateFromLong(String longWorkflowId);
+
+    @SignalMethod(name = STATE_CHANGED_SIGNAL)
+    void stateChanged(long version, SomeState state);
   }
 
   public interface ConnectorActivity {
@@ -145,45 +189,80 @@ public class WorkflowUpdateAndQuery {
     void updateState(String longWorkflowId, String someNewData);
   }
 
+  /**
+   * Concurrent reads of one long workflow share a query, and updates go through the same client so that they invalidate its cached state.
+   */
   @AllArgsConstructor
   public static class ConnectorActivityImpl implements ConnectorActivity {
 
-    private WorkflowClient workflowClient;
+    private static final String GET_STATE = "LongWorkflow::getState";
+    private static final String UPDATE = "LongWorkflow::update";
+
+    private CoalescingQueryClient queryClient;
+
+    public ConnectorActivityImpl(WorkflowClient workflowClient) {
+      this(new CoalescingQueryClient(workflowClient));
+    }
 
     @Override
     public SomeState getState(String longWorkflowId) {
-      LongWorkflow longWorkflow = workflowClient.newWorkflowStub(LongWorkflow.class, longWorkflowId);
-      SomeState state = longWorkflow.getState();
+      SomeState state = queryClient.query(longWorkflowId, GET_STATE, SomeState.class);
       System.out.println(String.format("I'm connector activity and I've got %s from long workflow", state.getSomeData()));
       return state;
     }
 
     @Override
     public void updateState(String longWorkflowId, String someNewData) {
-      workflowClient.newWorkflowStub(LongWorkflow.class, longWorkflowId).update(someNewData);
+      queryClient.signal(longWorkflowId, UPDATE, someNewData);
     }
   }
 
   @Data
+  @NoArgsConstructor
   @AllArgsConstructor
   public static class SomeState {
 
     private String someData;
   }
 
+  /**
+   * Subscribes to the long workflow and waits for the state it pushes, instead of querying it from an activity in a loop. Executions started before that
+   * still replay through {@link ConnectorActivity}.
+   */
   public static class ShortWorkflowImpl implements ShortWorkflow {
 
+    private static final String SUBSCRIBE_TO_STATE = "subscribeToState";
+
     private final ConnectorActivity connectorActivity = Workflow.newActivityStub(ConnectorActivity.class);
+    private long version = -1;
+    private SomeState state;
 
     @Override
     public SomeState getStateFromLong(String longWorkflowId) {
-      connectorActivity.updateState(longWorkflowId, "123");
-      Workflow.await(() -> connectorActivity.getState(longWorkflowId).getSomeData().equals("123"));
-      SomeState state = connectorActivity.getState(longWorkflowId);
-      System.out.println(String.format("I'm short workflow and I've got %s from long workflow thought connector activity", state.getSomeData()));
+      if (Workflow.getVersion(SUBSCRIBE_TO_STATE, Workflow.DEFAULT_VERSION, 1) == Workflow.DEFAULT_VERSION) {
+        connectorActivity.updateState(longWorkflowId, "123");
+        Workflow.await(() -> connectorActivity.getState(longWorkflowId).getSomeData().equals("123"));
+        SomeState polledState = connectorActivity.getState(longWorkflowId);
+        System.out.println(String.format("I'm short workflow and I've got %s from long workflow thought connector activity", polledState.getSomeData()));
+        return polledState;
+      }
+      LongWorkflow longWorkflow = Workflow.newExternalWorkflowStub(LongWorkflow.class, longWorkflowId);
+      String workflowId = Workflow.getWorkflowInfo().getWorkflowId();
+      longWorkflow.subscribe(workflowId);
+      longWorkflow.update("123");
+      Workflow.await(() -> state != null && state.getSomeData().equals("123"));
+      longWorkflow.unsubscribe(workflowId);
+      System.out.println(String.format("I'm short workflow and I've got %s from long workflow thought subscription", state.getSomeData()));
       return state;
     }
 
+    @Override
+    public void stateChanged(long version, SomeState state) {
+      if (version > this.version) {
+        this.version = version;
+        this.state = state;
+      }
+    }
   }
 
 
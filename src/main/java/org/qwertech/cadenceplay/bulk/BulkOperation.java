@@ -0,0 +1,51 @@
+package org.qwertech.cadenceplay.bulk;
+
+import com.uber.cadence.RequestCancelWorkflowExecutionRequest;
+import com.uber.cadence.SignalWorkflowExecutionRequest;
+import com.uber.cadence.TerminateWorkflowExecutionRequest;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.serviceclient.IWorkflowService;
+
+/**
+ * Action applied to every execution by {@link BulkOperationRunner}. Must be safe to retry: signal and cancel pass the same request id on every attempt, so
+ * the frontend deduplicates them.
+ */
+@FunctionalInterface
+public interface BulkOperation {
+
+  String IDENTITY = "bulk-operation";
+
+  void apply(IWorkflowService service, String domain, WorkflowExecution execution, String requestId) throws Exception;
+
+  /**
+   * @param signalName e.g. {@code GreetingWorkflow::unlockSignal}
+   * @param args serialized once for all executions
+   */
+  static BulkOperation signal(String signalName, DataConverter converter, Object... args) {
+    byte[] input = converter.toData(args);
+    return (service, domain, execution, requestId) -> service.SignalWorkflowExecution(new SignalWorkflowExecutionRequest()
+        .setDomain(domain)
+        .setWorkflowExecution(execution)
+        .setSignalName(signalName)
+        .setInput(input)
+        .setIdentity(IDENTITY)
+        .setRequestId(requestId));
+  }
+
+  static BulkOperation cancel() {
+    return (service, domain, execution, requestId) -> service.RequestCancelWorkflowExecution(new RequestCancelWorkflowExecutionRequest()
+        .setDomain(domain)
+        .setWorkflowExecution(execution)
+        .setIdentity(IDENTITY)
+        .setRequestId(requestId));
+  }
+
+  static BulkOperation terminate(String reason) {
+    return (service, domain, execution, requestId) -> service.TerminateWorkflowExecution(new TerminateWorkflowExecutionRequest()
+        .setDomain(domain)
+        .setWorkflowExecution(execution)
+        .setReason(reason)
+        .setIdentity(IDENTITY));
+  }
+}
@@ -0,0 +1,165 @@
+package org.qwertech.cadenceplay.bulk;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.uber.cadence.EntityNotExistsError;
+import com.uber.cadence.InternalServiceError;
+import com.uber.cadence.LimitExceededError;
+import com.uber.cadence.ServiceBusyError;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Applies a {@link BulkOperation} to a stream of executions with bounded concurrency and at a bounded rate. The stream is consumed only as fast as
+ * operations complete, so it may be a lazy visibility listing of any size.
+ * <p>
+ * Throttling and transient frontend errors are retried with exponential backoff and jitter, each attempt counting against the rate. Executions that no
+ * longer exist count as done. Done executions are written to an optional checkpoint file, and a rerun with the same file skips them. Progress is logged
+ * periodically.
+ */
+@Slf4j
+public class BulkOperationRunner {
+
+  public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+  private static final long INITIAL_BACKOFF_MILLIS = 100;
+  private static final long MAX_BACKOFF_MILLIS = 10_000;
+  private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+  private final IWorkflowService service;
+  private final String domain;
+  private final int concurrency;
+  private final RateLimiter rateLimiter;
+  private final Path checkpointFile;
+  private final int maxAttempts;
+
+  /**
+   * @param checkpointFile null to not remember progress between runs
+   */
+  public BulkOperationRunner(IWorkflowService service, String domain, int concurrency, double operationsPerSecond, Path checkpointFile) {
+    this(service, domain, concurrency, operationsPerSecond, checkpointFile, DEFAULT_MAX_ATTEMPTS);
+  }
+
+  public BulkOperationRunner(IWorkflowService service, String domain, int concurrency, double operationsPerSecond, Path checkpointFile, int maxAttempts) {
+    this.service = service;
+    this.domain = domain;
+    this.concurrency = concurrency;
+    this.rateLimiter = RateLimiter.create(operationsPerSecond);
+    this.checkpointFile = checkpointFile;
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Checkpoint file of one operation, e.g. {@code checkpointFile(dir, "GreetingWorkflow::getGreeting", "signal", "GreetingWorkflow::unlockSignal")}. The
+   * name keeps the readable part of the operation and a hash of all of it, so different signals or reasons never share a checkpoint.
+   */
+  public static Path checkpointFile(Path directory, String... operation) {
+    String name = String.join(" ", operation);
+    String hash = Hashing.murmur3_32().hashString(name, StandardCharsets.UTF_8).toString();
+    return directory.resolve("bulk-" + name.replaceAll("[^A-Za-z0-9._-]+", "_") + "-" + hash + ".checkpoint");
+  }
+
+  @SneakyThrows
+  public BulkProgress run(Stream<WorkflowExecution> executions, BulkOperation operation) {
+    BulkProgress progress = new BulkProgress();
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder().setNameFormat("bulk-operation-%d").build());
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).build());
+    Semaphore inFlight = new Semaphore(concurrency);
+    try (Checkpoint checkpoint = new Checkpoint(checkpointFile)) {
+      reporter.scheduleAtFixedRate(() -> log.info("[run] {}", progress), PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+      Iterator<WorkflowExecution> iterator = executions.iterator();
+      while (iterator.hasNext()) {
+        WorkflowExecution execution = iterator.next();
+        if (checkpoint.contains(keyOf(execution))) {
+          progress.skipped();
+          continue;
+        }
+        inFlight.acquire();
+        executor.execute(() -> {
+          try {
+            apply(operation, execution, checkpoint, progress);
+          } finally {
+            inFlight.release();
+          }
+        });
+      }
+      inFlight.acquire(concurrency);
+    } finally {
+      executor.shutdownNow();
+      reporter.shutdownNow();
+    }
+    log.info("[run] finished: {}", progress);
+    return progress;
+  }
+
+  private void apply(BulkOperation operation, WorkflowExecution execution, Checkpoint checkpoint, BulkProgress progress) {
+    // the same request id on every attempt lets the frontend deduplicate retries
+    String requestId = UUID.randomUUID().toString();
+    long started = System.nanoTime();
+    for (int attempt = 1; ; attempt++) {
+      rateLimiter.acquire();
+      try {
+        operation.apply(service, domain, execution, requestId);
+        progress.succeeded(System.nanoTime() - started);
+        checkpoint.add(keyOf(execution));
+        return;
+      } catch (EntityNotExistsError e) {
+        progress.notFound();
+        checkpoint.add(keyOf(execution));
+        return;
+      } catch (ServiceBusyError | LimitExceededError | InternalServiceError e) {
+        if (attempt >= maxAttempts) {
+          progress.failed();
+          log.warn("[apply] gave up on {} after {} attempts", execution, attempt, e);
+          return;
+        }
+        progress.retried();
+        if (!sleep(backoffMillis(attempt))) {
+          progress.failed();
+          return;
+        }
+      } catch (Exception e) {
+        progress.failed();
+        log.warn("[apply] failed on {}", execution, e);
+        return;
+      }
+    }
+  }
+
+  private static long backoffMillis(int attempt) {
+    long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+    return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+  }
+
+  /**
+   * @return false if interrupted
+   */
+  private static boolean sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static String keyOf(WorkflowExecution execution) {
+    String runId = execution.getRunId();
+    return runId == null || runId.isEmpty() ? execution.getWorkflowId() : runId;
+  }
+}
@@ -0,0 +1,88 @@
+package org.qwertech.cadenceplay.bulk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Counters and latency of a bulk operation, updated while it runs. Latency covers all attempts of one execution, including backoff.
+ */
+public class BulkProgress {
+
+  private final long startedNanos = System.nanoTime();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder notFound = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(3);
+
+  void succeeded(long latencyNanos) {
+    succeeded.increment();
+    latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+  }
+
+  void notFound() {
+    notFound.increment();
+  }
+
+  void failed() {
+    failed.increment();
+  }
+
+  void skipped() {
+    skipped.increment();
+  }
+
+  void retried() {
+    retries.increment();
+  }
+
+  public long getSucceeded() {
+    return succeeded.sum();
+  }
+
+  /**
+   * Executions that were already closed or did not exist.
+   */
+  public long getNotFound() {
+    return notFound.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * Executions done in a previous run, according to the checkpoint.
+   */
+  public long getSkipped() {
+    return skipped.sum();
+  }
+
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  /**
+   * Copy of the latency histogram of successful executions, in microseconds.
+   */
+  public Histogram getLatencyMicros() {
+    return latencyMicros.copy();
+  }
+
+  public double getRate() {
+    double seconds = (System.nanoTime() - startedNanos) / 1e9;
+    return seconds == 0 ? 0 : (getSucceeded() + getNotFound() + getFailed()) / seconds;
+  }
+
+  @Override
+  public String toString() {
+    Histogram latency = getLatencyMicros();
+    return String.format("succeeded=%d, notFound=%d, failed=%d, skipped=%d, retries=%d, rate=%.1f/s, latency ms p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+        getSucceeded(), getNotFound(), getFailed(), getSkipped(), getRetries(), getRate(),
+        latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+        latency.getMaxValue() / 1000.0);
+  }
+}
@@ -0,0 +1,63 @@
+package org.qwertech.cadenceplay.bulk;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.qwertech.cadenceplay.visibility.WorkflowIdSet;
+
+/**
+ * Append-only file of the executions a bulk operation is done with, one key per line, so that a rerun skips them. No file means nothing is remembered.
+ */
+class Checkpoint implements Closeable {
+
+  private final WorkflowIdSet done = new WorkflowIdSet();
+  private final BufferedWriter writer;
+
+  @SneakyThrows
+  Checkpoint(Path file) {
+    if (file == null) {
+      writer = null;
+      return;
+    }
+    if (Files.exists(file)) {
+      try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+        lines.filter(line -> !line.isEmpty()).forEach(done::add);
+      }
+    }
+    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  synchronized boolean contains(String key) {
+    return done.contains(key);
+  }
+
+  /**
+   * Flushes every key, a crash loses at most the operations in flight.
+   */
+  @SneakyThrows
+  synchronized void add(String key) {
+    done.add(key);
+    if (writer != null) {
+      writer.write(key);
+      writer.newLine();
+      writer.flush();
+    }
+  }
+
+  synchronized int size() {
+    return done.size();
+  }
+
+  @Override
+  @SneakyThrows
+  public synchronized void close() {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.qwertech.cadenceplay.codegen;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a payload class for which {@code PayloadCodecProcessor} generates a reflection-free Jackson serializer and deserializer. The class must be a public
+ * top-level or static nested class with a no-arg constructor and conventional getters/setters for all its non-static fields, e.g. a Lombok {@code @Data} POJO.
+ * Produced JSON is the same as the one Jackson writes with {@code JacksonDataConverter.getDefaultJackson()}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CompiledPayload {
+
+}
@@ -0,0 +1,72 @@
+package org.qwertech.cadenceplay.codegen;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import java.util.Optional;
+
+/**
+ * Plugs codecs generated for {@link CompiledPayload} classes into an {@link com.fasterxml.jackson.databind.ObjectMapper}. Other types are left to Jackson.
+ */
+public class CompiledPayloadModule extends SimpleModule {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Same as {@code PayloadCodecProcessor.CODEC_SUFFIX}, the processor is compiled separately and can't be referenced.
+   */
+  static final String CODEC_SUFFIX = "_PayloadCodec";
+
+  private static final ClassValue<Optional<PayloadCodec<?>>> CODECS = new ClassValue<Optional<PayloadCodec<?>>>() {
+    @Override
+    protected Optional<PayloadCodec<?>> computeValue(Class<?> type) {
+      if (!type.isAnnotationPresent(CompiledPayload.class)) {
+        return Optional.empty();
+      }
+      try {
+        Class<?> codecClass = Class.forName(codecClassName(type), true, type.getClassLoader());
+        return Optional.of((PayloadCodec<?>) codecClass.getDeclaredConstructor().newInstance());
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("No generated codec for @CompiledPayload " + type.getName() + ", is annotation processing enabled?", e);
+      }
+    }
+  };
+
+  public CompiledPayloadModule() {
+    super(CompiledPayloadModule.class.getSimpleName());
+  }
+
+  @Override
+  public void setupModule(SetupContext context) {
+    super.setupModule(context);
+    context.addSerializers(new Serializers.Base() {
+      @Override
+      public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc) {
+        Optional<PayloadCodec<?>> codec = CODECS.get(type.getRawClass());
+        return codec.isPresent() ? codec.get().serializer() : null;
+      }
+    });
+    context.addDeserializers(new Deserializers.Base() {
+      @Override
+      public JsonDeserializer<?> findBeanDeserializer(JavaType type, DeserializationConfig config, BeanDescription beanDesc) {
+        Optional<PayloadCodec<?>> codec = CODECS.get(type.getRawClass());
+        return codec.isPresent() ? codec.get().deserializer() : null;
+      }
+    });
+  }
+
+  /**
+   * Generated codec of {@code a.b.Outer$Payload} is {@code a.b.Outer_Payload_PayloadCodec}, see {@code PayloadCodecProcessor}.
+   */
+  static String codecClassName(Class<?> type) {
+    String packageName = type.getPackage() == null ? "" : type.getPackage().getName();
+    String simpleName = packageName.isEmpty() ? type.getName() : type.getName().substring(packageName.length() + 1);
+    return (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_') + CODEC_SUFFIX;
+  }
+}
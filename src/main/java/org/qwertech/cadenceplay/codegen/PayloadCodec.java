@@ -0,0 +1,14 @@
+package org.qwertech.cadenceplay.codegen;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+
+/**
+ * Implemented by classes generated for {@link CompiledPayload} types.
+ */
+public interface PayloadCodec<T> {
+
+  JsonSerializer<T> serializer();
+
+  JsonDeserializer<T> deserializer();
+}
@@ -0,0 +1,97 @@
+package org.qwertech.cadenceplay.codegen;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Base of generated deserializers. Deserializers of field types are resolved once in {@link #resolve(DeserializationContext)}, strings and primitives are
+ * read straight from the parser when the token allows it, everything else goes to the resolved Jackson deserializer.
+ */
+public abstract class PayloadDeserializer<T> extends StdDeserializer<T> implements ResolvableDeserializer {
+
+  protected PayloadDeserializer(Class<T> type) {
+    super(type);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    JsonToken token = p.getCurrentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = p.nextToken();
+    } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+      return (T) ctxt.handleUnexpectedToken(handledType(), p);
+    }
+    T value = newInstance();
+    for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String name = p.getCurrentName();
+      p.nextToken();
+      if (!readField(name, value, p, ctxt)) {
+        ctxt.handleUnknownProperty(p, this, value, name);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public boolean isCachable() {
+    return true;
+  }
+
+  protected abstract T newInstance();
+
+  /**
+   * @return {@code false} if there is no field with this name
+   */
+  protected abstract boolean readField(String name, T value, JsonParser p, DeserializationContext ctxt) throws IOException;
+
+  protected static JsonDeserializer<Object> find(DeserializationContext ctxt, Type type) throws JsonMappingException {
+    return ctxt.findRootValueDeserializer(ctxt.getTypeFactory().constructType(type));
+  }
+
+  protected static Object read(JsonDeserializer<Object> deserializer, JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return deserializer.getNullValue(ctxt);
+    }
+    return deserializer.deserialize(p, ctxt);
+  }
+
+  protected static String readString(JsonDeserializer<Object> deserializer, JsonParser p, DeserializationContext ctxt) throws IOException {
+    // a custom String deserializer, e.g. a canonicalizing one, must see every value
+    if (p.getCurrentToken() == JsonToken.VALUE_STRING && deserializer.getClass() == StringDeserializer.class) {
+      return p.getText();
+    }
+    return (String) read(deserializer, p, ctxt);
+  }
+
+  protected static int readInt(JsonDeserializer<Object> deserializer, JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT && p.getNumberType() == JsonParser.NumberType.INT) {
+      return p.getIntValue();
+    }
+    return (Integer) read(deserializer, p, ctxt);
+  }
+
+  protected static long readLong(JsonDeserializer<Object> deserializer, JsonParser p, DeserializationContext ctxt) throws IOException {
+    JsonToken token = p.getCurrentToken();
+    if (token == JsonToken.VALUE_NUMBER_INT && p.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+      return p.getLongValue();
+    }
+    return (Long) read(deserializer, p, ctxt);
+  }
+
+  protected static boolean readBoolean(JsonDeserializer<Object> deserializer, JsonParser p, DeserializationContext ctxt) throws IOException {
+    JsonToken token = p.getCurrentToken();
+    if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+      return token == JsonToken.VALUE_TRUE;
+    }
+    return (Boolean) read(deserializer, p, ctxt);
+  }
+}
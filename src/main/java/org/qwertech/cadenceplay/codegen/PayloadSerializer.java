@@ -0,0 +1,25 @@
+package org.qwertech.cadenceplay.codegen;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Base of generated serializers. Subclasses write fields in declaration order, the same order Jackson uses for field-visible POJOs.
+ */
+public abstract class PayloadSerializer<T> extends StdSerializer<T> {
+
+  protected PayloadSerializer(Class<T> type) {
+    super(type);
+  }
+
+  @Override
+  public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    gen.writeStartObject(value);
+    writeFields(value, gen, provider);
+    gen.writeEndObject();
+  }
+
+  protected abstract void writeFields(T value, JsonGenerator gen, SerializerProvider provider) throws IOException;
+}
@@ -0,0 +1,27 @@
+package org.qwertech.cadenceplay.converter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Storage of payloads offloaded by {@link ClaimCheckDataConverter}. Keys are content hashes, so a blob stored under a key never changes.
+ */
+public interface BlobStore {
+
+  Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+  /**
+   * @return whether the key is a SHA-256 hash in lowercase hex, the only keys {@link ClaimCheckDataConverter} writes
+   */
+  static boolean isValidKey(String key) {
+    return KEY.matcher(key).matches();
+  }
+
+  boolean contains(String key);
+
+  void put(String key, byte[] blob);
+
+  /**
+   * @return stored blob or {@code null} if there is no blob with this key
+   */
+  byte[] get(String key);
+}
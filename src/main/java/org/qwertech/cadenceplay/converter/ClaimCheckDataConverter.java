@@ -0,0 +1,108 @@
+package org.qwertech.cadenceplay.converter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.DataConverterException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps payloads of the delegate converter that are larger than a limit out of workflow history. Such payload is put into a {@link BlobStore} under its
+ * SHA-256 hash, and history gets only a reference framed as {@code 00 'C' 'K' 01} followed by the hash. Identical payloads share one blob, and recently used
+ * blobs are kept in a cache bounded by their total size, so replays don't go to the store again.
+ */
+@Slf4j
+public class ClaimCheckDataConverter implements DataConverter {
+
+  public static final int DEFAULT_LIMIT_BYTES = 64 * 1024;
+  public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+  private static final byte[] MAGIC = {0, 'C', 'K', 1};
+
+  private final DataConverter delegate;
+  private final BlobStore store;
+  private final int limitBytes;
+  private final Cache<String, byte[]> cache;
+
+  public ClaimCheckDataConverter(DataConverter delegate, BlobStore store) {
+    this(delegate, store, DEFAULT_LIMIT_BYTES, DEFAULT_CACHE_BYTES);
+  }
+
+  public ClaimCheckDataConverter(DataConverter delegate, BlobStore store, int limitBytes, long cacheBytes) {
+    this.delegate = delegate;
+    this.store = store;
+    this.limitBytes = limitBytes;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(cacheBytes)
+        .<String, byte[]>weigher((key, blob) -> blob.length)
+        .build();
+  }
+
+  @Override
+  public byte[] toData(Object... values) throws DataConverterException {
+    byte[] data = delegate.toData(values);
+    if (data == null || data.length <= limitBytes) {
+      return data;
+    }
+    String key = Hashing.sha256().hashBytes(data).toString();
+    if (cache.getIfPresent(key) == null && !store.contains(key)) {
+      store.put(key, data);
+      log.debug("[toData] offloaded payload of {} bytes to blob {}", data.length, key);
+    }
+    cache.put(key, data);
+    return reference(key);
+  }
+
+  @Override
+  public <T> T fromData(byte[] content, Class<T> valueClass, Type valueType) throws DataConverterException {
+    return delegate.fromData(resolve(content, valueType), valueClass, valueType);
+  }
+
+  @Override
+  public Object[] fromDataArray(byte[] content, Type... valueTypes) throws DataConverterException {
+    return delegate.fromDataArray(resolve(content, valueTypes), valueTypes);
+  }
+
+  public static boolean isReference(byte[] content) {
+    if (content == null || content.length <= MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (content[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] reference(String key) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.US_ASCII);
+    byte[] reference = Arrays.copyOf(MAGIC, MAGIC.length + keyBytes.length);
+    System.arraycopy(keyBytes, 0, reference, MAGIC.length, keyBytes.length);
+    return reference;
+  }
+
+  private byte[] resolve(byte[] content, Type... valueTypes) {
+    if (!isReference(content)) {
+      return content;
+    }
+    String key = new String(content, MAGIC.length, content.length - MAGIC.length, StandardCharsets.US_ASCII);
+    // the key comes from history and ends up in a store path
+    if (!BlobStore.isValidKey(key)) {
+      throw new DataConverterException("Blob reference in history is not a SHA-256 hash", content, valueTypes);
+    }
+    byte[] blob = cache.getIfPresent(key);
+    if (blob == null) {
+      blob = store.get(key);
+      if (blob == null) {
+        throw new DataConverterException("Blob " + key + " referenced from history is missing", content, valueTypes);
+      }
+      cache.put(key, blob);
+    }
+    return blob;
+  }
+}
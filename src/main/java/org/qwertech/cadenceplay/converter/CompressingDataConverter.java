@@ -0,0 +1,157 @@
+package org.qwertech.cadenceplay.converter;
+
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.DataConverterException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compresses payloads of the delegate converter that are larger than a threshold. Compressed payloads are framed as {@code 00 'Z' 'D' 01} followed by the
+ * original length (big-endian int) and raw deflate data. Neither JSON nor Smile can start with a zero byte, so payloads written without compression, including
+ * all legacy history, are passed to the delegate as is. A frame declaring a negative length or one above {@code maxDecompressedBytes}, or inflating to a different
+ * length, is rejected.
+ */
+@Slf4j
+public class CompressingDataConverter implements DataConverter {
+
+  public static final int DEFAULT_THRESHOLD_BYTES = 4 * 1024;
+  public static final int DEFAULT_MAX_DECOMPRESSED_BYTES = 64 * 1024 * 1024;
+
+  private static final byte[] MAGIC = {0, 'Z', 'D', 1};
+  private static final int HEADER_LENGTH = MAGIC.length + Integer.BYTES;
+
+  private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+  private final DataConverter delegate;
+  private final int thresholdBytes;
+  private final int maxDecompressedBytes;
+  @Getter
+  private final CompressionStats stats = new CompressionStats();
+
+  public CompressingDataConverter(DataConverter delegate) {
+    this(delegate, DEFAULT_THRESHOLD_BYTES);
+  }
+
+  public CompressingDataConverter(DataConverter delegate, int thresholdBytes) {
+    this(delegate, thresholdBytes, DEFAULT_MAX_DECOMPRESSED_BYTES);
+  }
+
+  public CompressingDataConverter(DataConverter delegate, int thresholdBytes, int maxDecompressedBytes) {
+    this.delegate = delegate;
+    this.thresholdBytes = thresholdBytes;
+    this.maxDecompressedBytes = maxDecompressedBytes;
+  }
+
+  @Override
+  public byte[] toData(Object... values) throws DataConverterException {
+    return compress(delegate.toData(values));
+  }
+
+  @Override
+  public <T> T fromData(byte[] content, Class<T> valueClass, Type valueType) throws DataConverterException {
+    return delegate.fromData(decompress(content, valueType), valueClass, valueType);
+  }
+
+  @Override
+  public Object[] fromDataArray(byte[] content, Type... valueTypes) throws DataConverterException {
+    return delegate.fromDataArray(decompress(content, valueTypes), valueTypes);
+  }
+
+  public static boolean isCompressed(byte[] content) {
+    if (content == null || content.length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (content[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte[] compress(byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    stats.recordPayload();
+    if (data.length < thresholdBytes || data.length <= HEADER_LENGTH) {
+      return data;
+    }
+    long start = System.nanoTime();
+    // output that doesn't fit into the original size is not worth keeping
+    byte[] buffer = new byte[data.length];
+    System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+    writeInt(buffer, MAGIC.length, data.length);
+
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setInput(data);
+    deflater.finish();
+    int length = HEADER_LENGTH;
+    while (!deflater.finished() && length < buffer.length) {
+      length += deflater.deflate(buffer, length, buffer.length - length);
+    }
+    if (!deflater.finished()) {
+      stats.recordIncompressible(System.nanoTime() - start);
+      return data;
+    }
+    byte[] result = Arrays.copyOf(buffer, length);
+    stats.recordCompressed(data.length, result.length, System.nanoTime() - start);
+    if (log.isTraceEnabled()) {
+      log.trace("[toData] compressed payload from {} to {} bytes", data.length, result.length);
+    }
+    return result;
+  }
+
+  private byte[] decompress(byte[] content, Type... valueTypes) {
+    if (!isCompressed(content)) {
+      return content;
+    }
+    long start = System.nanoTime();
+    int declaredLength = readInt(content, MAGIC.length);
+    if (declaredLength < 0 || declaredLength > maxDecompressedBytes) {
+      throw new DataConverterException("Compressed payload declares " + declaredLength + " bytes, limit is " + maxDecompressedBytes, content, valueTypes);
+    }
+    byte[] result = new byte[declaredLength];
+    Inflater inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(content, HEADER_LENGTH, content.length - HEADER_LENGTH);
+    int length = 0;
+    try {
+      while (length < result.length && !inflater.finished() && !inflater.needsInput()) {
+        length += inflater.inflate(result, length, result.length - length);
+      }
+      if (length != result.length) {
+        throw new DataConverterException("Compressed payload is truncated", content, valueTypes);
+      }
+      // the end of the deflate stream may follow the last output byte
+      if (!inflater.finished() && (inflater.inflate(new byte[1]) > 0 || !inflater.finished())) {
+        throw new DataConverterException("Compressed payload is longer than declared", content, valueTypes);
+      }
+    } catch (DataFormatException e) {
+      throw new DataConverterException(content, valueTypes, e);
+    }
+    stats.recordDecompressed(System.nanoTime() - start);
+    return result;
+  }
+
+  private static void writeInt(byte[] buffer, int offset, int value) {
+    buffer[offset] = (byte) (value >>> 24);
+    buffer[offset + 1] = (byte) (value >>> 16);
+    buffer[offset + 2] = (byte) (value >>> 8);
+    buffer[offset + 3] = (byte) value;
+  }
+
+  private static int readInt(byte[] buffer, int offset) {
+    return (buffer[offset] & 0xFF) << 24
+        | (buffer[offset + 1] & 0xFF) << 16
+        | (buffer[offset + 2] & 0xFF) << 8
+        | buffer[offset + 3] & 0xFF;
+  }
+}
@@ -0,0 +1,85 @@
+package org.qwertech.cadenceplay.converter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of {@link CompressingDataConverter}, used to tune its threshold against decision task latency.
+ */
+public class CompressionStats {
+
+  private final LongAdder payloads = new LongAdder();
+  private final LongAdder compressed = new LongAdder();
+  private final LongAdder incompressible = new LongAdder();
+  private final LongAdder originalBytes = new LongAdder();
+  private final LongAdder compressedBytes = new LongAdder();
+  private final LongAdder compressNanos = new LongAdder();
+  private final LongAdder decompressed = new LongAdder();
+  private final LongAdder decompressNanos = new LongAdder();
+
+  void recordPayload() {
+    payloads.increment();
+  }
+
+  void recordCompressed(int original, int result, long nanos) {
+    compressed.increment();
+    originalBytes.add(original);
+    compressedBytes.add(result);
+    compressNanos.add(nanos);
+  }
+
+  void recordIncompressible(long nanos) {
+    incompressible.increment();
+    compressNanos.add(nanos);
+  }
+
+  void recordDecompressed(long nanos) {
+    decompressed.increment();
+    decompressNanos.add(nanos);
+  }
+
+  /**
+   * @return number of non-null payloads passed to {@code toData}
+   */
+  public long getPayloads() {
+    return payloads.sum();
+  }
+
+  public long getCompressed() {
+    return compressed.sum();
+  }
+
+  /**
+   * @return number of payloads above the threshold that were written uncompressed because compression did not make them smaller
+   */
+  public long getIncompressible() {
+    return incompressible.sum();
+  }
+
+  public long getDecompressed() {
+    return decompressed.sum();
+  }
+
+  /**
+   * @return compressed size to original size of all compressed payloads, {@code 1.0} when nothing was compressed yet
+   */
+  public double getRatio() {
+    long original = originalBytes.sum();
+    return original == 0 ? 1.0 : (double) compressedBytes.sum() / original;
+  }
+
+  public long getCompressMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(compressNanos.sum());
+  }
+
+  public long getDecompressMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(decompressNanos.sum());
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "payloads=%d, compressed=%d, incompressible=%d, ratio=%.3f, compress=%dms, decompressed=%d, decompress=%dms",
+        getPayloads(), getCompressed(), getIncompressible(), getRatio(), getCompressMillis(), getDecompressed(), getDecompressMillis());
+  }
+}
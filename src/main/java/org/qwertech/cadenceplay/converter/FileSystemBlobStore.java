@@ -0,0 +1,57 @@
+package org.qwertech.cadenceplay.converter;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import lombok.SneakyThrows;
+
+/**
+ * {@link BlobStore} keeping every blob in its own file, spread over sub-directories by the first two characters of the key. For tests and local runs.
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+  private final Path root;
+
+  @SneakyThrows
+  public FileSystemBlobStore(Path root) {
+    this.root = Files.createDirectories(root);
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return Files.exists(pathOf(key));
+  }
+
+  @Override
+  @SneakyThrows
+  public void put(String key, byte[] blob) {
+    Path path = pathOf(key);
+    Files.createDirectories(path.getParent());
+    // concurrent writers of the same key write identical content, so the last move wins harmlessly
+    Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+    try {
+      Files.write(tmp, blob);
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  @Override
+  @SneakyThrows
+  public byte[] get(String key) {
+    try {
+      return Files.readAllBytes(pathOf(key));
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private Path pathOf(String key) {
+    if (!BlobStore.isValidKey(key)) {
+      throw new IllegalArgumentException("Invalid blob key " + key);
+    }
+    return root.resolve(key.substring(0, 2)).resolve(key);
+  }
+}
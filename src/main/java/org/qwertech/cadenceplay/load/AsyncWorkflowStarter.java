@@ -0,0 +1,137 @@
+package org.qwertech.cadenceplay.load;
+
+import com.uber.cadence.StartWorkflowExecutionRequest;
+import com.uber.cadence.StartWorkflowExecutionResponse;
+import com.uber.cadence.TaskList;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.WorkflowType;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.async.AsyncMethodCallback;
+
+/**
+ * Starts workflows of one type through the non-blocking {@link IWorkflowService} call, keeping up to {@code window} starts in flight. Requests are built from
+ * a template prepared once, with the input serialized once, instead of creating a typed stub and serializing per start.
+ * <p>
+ * Transports that don't implement the asynchronous start get blocking calls on {@code window} threads instead.
+ */
+@Slf4j
+public class AsyncWorkflowStarter implements AutoCloseable {
+
+  private static final Duration DEFAULT_TASK_START_TO_CLOSE_TIMEOUT = Duration.ofSeconds(10);
+  private static final String IDENTITY = "async-workflow-starter";
+
+  private final IWorkflowService service;
+  private final StartWorkflowExecutionRequest template;
+  private final int window;
+  private final Semaphore inFlight;
+  private volatile ExecutorService blockingStarts;
+
+  /**
+   * @param options task list and execution timeout are required, the workflow id is generated per start
+   * @param args workflow arguments, serialized once
+   */
+  public AsyncWorkflowStarter(IWorkflowService service, String domain, String workflowType, WorkflowOptions options, DataConverter converter, int window,
+      Object... args) {
+    Duration taskTimeout = options.getTaskStartToCloseTimeout() == null ? DEFAULT_TASK_START_TO_CLOSE_TIMEOUT : options.getTaskStartToCloseTimeout();
+    this.service = service;
+    this.template = new StartWorkflowExecutionRequest()
+        .setDomain(domain)
+        .setWorkflowType(new WorkflowType().setName(workflowType))
+        .setTaskList(new TaskList().setName(options.getTaskList()))
+        .setInput(converter.toData(args))
+        .setExecutionStartToCloseTimeoutSeconds((int) options.getExecutionStartToCloseTimeout().getSeconds())
+        .setTaskStartToCloseTimeoutSeconds((int) taskTimeout.getSeconds())
+        .setWorkflowIdReusePolicy(options.getWorkflowIdReusePolicy())
+        .setIdentity(IDENTITY);
+    this.window = window;
+    this.inFlight = new Semaphore(window);
+  }
+
+  public CompletableFuture<WorkflowExecution> start() {
+    return start(UUID.randomUUID().toString());
+  }
+
+  public CompletableFuture<WorkflowExecution> start(String workflowId) {
+    return start(workflowId, template.getTaskList().getName());
+  }
+
+  /**
+   * Blocks while the window is full.
+   *
+   * @param taskList overrides the task list of the options, e.g. one of {@link TaskListShards}
+   */
+  @SneakyThrows
+  public CompletableFuture<WorkflowExecution> start(String workflowId, String taskList) {
+    StartWorkflowExecutionRequest request = request(workflowId, taskList);
+    CompletableFuture<WorkflowExecution> result = new CompletableFuture<>();
+    inFlight.acquire();
+    result.whenComplete((execution, error) -> inFlight.release());
+    if (blockingStarts == null) {
+      try {
+        service.StartWorkflowExecution(request, new AsyncMethodCallback<StartWorkflowExecutionResponse>() {
+          @Override
+          public void onComplete(StartWorkflowExecutionResponse response) {
+            result.complete(new WorkflowExecution().setWorkflowId(workflowId).setRunId(response.getRunId()));
+          }
+
+          @Override
+          public void onError(Exception e) {
+            result.completeExceptionally(e);
+          }
+        });
+        return result;
+      } catch (UnsupportedOperationException e) {
+        fallBackToBlockingStarts();
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+        return result;
+      }
+    }
+    blockingStarts.execute(() -> {
+      try {
+        result.complete(new WorkflowExecution().setWorkflowId(workflowId).setRunId(service.StartWorkflowExecution(request).getRunId()));
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  private StartWorkflowExecutionRequest request(String workflowId, String taskList) {
+    return new StartWorkflowExecutionRequest()
+        .setDomain(template.getDomain())
+        .setWorkflowId(workflowId)
+        .setWorkflowType(template.getWorkflowType())
+        .setTaskList(taskList.equals(template.getTaskList().getName()) ? template.getTaskList() : new TaskList().setName(taskList))
+        .setInput(template.bufferForInput())
+        .setExecutionStartToCloseTimeoutSeconds(template.getExecutionStartToCloseTimeoutSeconds())
+        .setTaskStartToCloseTimeoutSeconds(template.getTaskStartToCloseTimeoutSeconds())
+        .setWorkflowIdReusePolicy(template.getWorkflowIdReusePolicy())
+        .setIdentity(template.getIdentity())
+        .setRequestId(UUID.randomUUID().toString());
+  }
+
+  private synchronized void fallBackToBlockingStarts() {
+    if (blockingStarts == null) {
+      log.warn("[start] asynchronous start is not supported by {}, falling back to blocking calls on {} threads", service.getClass().getSimpleName(), window);
+      blockingStarts = Executors.newFixedThreadPool(window);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (blockingStarts != null) {
+      blockingStarts.shutdown();
+    }
+  }
+}
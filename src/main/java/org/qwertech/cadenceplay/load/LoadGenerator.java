@@ -0,0 +1,109 @@
+package org.qwertech.cadenceplay.load;
+
+import com.uber.cadence.WorkflowExecution;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open-loop workflow load: starts are issued at the intended times of a {@link LoadProfile}, whether or not earlier starts have been acknowledged, up to
+ * {@code maxInFlight} unacknowledged starts. When the limit or a slow scheduler makes a start late, its latency is still measured from the intended time,
+ * which is the coordinated omission correction.
+ */
+@Slf4j
+public class LoadGenerator {
+
+  private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final int maxInFlight;
+  private final long completionTimeoutNanos;
+
+  /**
+   * @param completionTimeout how long to wait for outstanding completions after the last start, if completion is awaited
+   */
+  public LoadGenerator(int maxInFlight, long completionTimeout, TimeUnit unit) {
+    this.maxInFlight = maxInFlight;
+    this.completionTimeoutNanos = unit.toNanos(completionTimeout);
+  }
+
+  /**
+   * @param starter starts workflow number {@code i} without blocking the caller
+   * @param completion null to measure starts only, otherwise completes when the workflow does
+   */
+  @SneakyThrows
+  public LoadResult run(LoadProfile profile, LongFunction<CompletableFuture<WorkflowExecution>> starter,
+      Function<WorkflowExecution, CompletableFuture<?>> completion) {
+    LoadResult result = new LoadResult(profile, maxInFlight);
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    Queue<CompletableFuture<?>> completions = new ConcurrentLinkedQueue<>();
+    long total = profile.getTotalStarts();
+    long begin = System.nanoTime();
+    long nextProgress = begin + PROGRESS_INTERVAL_NANOS;
+
+    for (long i = 0; i < total; i++) {
+      long intended = begin + profile.intendedOffsetNanos(i);
+      for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+        LockSupport.parkNanos(wait);
+      }
+      inFlight.acquire();
+      long sent = System.nanoTime();
+      CompletableFuture<WorkflowExecution> start;
+      try {
+        start = starter.apply(i);
+      } catch (RuntimeException e) {
+        start = new CompletableFuture<>();
+        start.completeExceptionally(e);
+      }
+      start.whenComplete((execution, error) -> {
+        long acknowledged = System.nanoTime();
+        try {
+          if (error != null) {
+            result.failedStart();
+            log.debug("[run] start failed", error);
+            return;
+          }
+          result.started(intended, sent, acknowledged);
+          if (completion != null) {
+            completions.add(completion.apply(execution).whenComplete((ignored, completionError) -> {
+              if (completionError != null) {
+                result.failedCompletion();
+              } else {
+                result.completed(intended, System.nanoTime());
+              }
+            }));
+          }
+        } finally {
+          // released last, so that every completion is queued once all permits are back
+          inFlight.release();
+        }
+      });
+      if (sent >= nextProgress) {
+        nextProgress += PROGRESS_INTERVAL_NANOS;
+        log.info("[run] {}/{} starts issued, {} ms behind schedule, p99 start latency {} ms", i + 1, total, TimeUnit.NANOSECONDS.toMillis(sent - intended),
+            result.getStartLatency().getValueAtPercentile(99) / 1000.0);
+      }
+    }
+    inFlight.acquire(maxInFlight);
+    result.finish(System.nanoTime() - begin);
+
+    if (completion != null) {
+      try {
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0])).get(completionTimeoutNanos, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        log.warn("[run] {} workflows didn't complete in time", result.getStarted() - result.getCompleted() - result.getFailedCompletions());
+      } catch (Exception ignored) {
+        // failed completions are counted
+      }
+    }
+    log.info("[run] finished: {}", result);
+    return result;
+  }
+}
@@ -0,0 +1,50 @@
+package org.qwertech.cadenceplay.load;
+
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * Target start rate ramping linearly from {@code startRate} to {@code endRate} per second over {@code duration}; equal rates give a fixed rate. Intended start
+ * times are computed from the start index, not from the previous start, so a late start doesn't shift the schedule.
+ */
+@Getter
+public class LoadProfile {
+
+  private final double startRate;
+  private final double endRate;
+  private final long durationNanos;
+
+  public LoadProfile(double startRate, double endRate, long duration, TimeUnit unit) {
+    if (startRate <= 0 || endRate <= 0) {
+      throw new IllegalArgumentException("Rates must be positive");
+    }
+    this.startRate = startRate;
+    this.endRate = endRate;
+    this.durationNanos = unit.toNanos(duration);
+  }
+
+  public static LoadProfile fixed(double rate, long duration, TimeUnit unit) {
+    return new LoadProfile(rate, rate, duration, unit);
+  }
+
+  /**
+   * Number of starts over the whole profile, the area under the rate.
+   */
+  public long getTotalStarts() {
+    return (long) ((startRate + endRate) / 2 * durationNanos / 1e9);
+  }
+
+  /**
+   * Offset from the beginning of the run at which start {@code index} is due, solving {@code r0 t + (r1 - r0) t^2 / 2D = index} for {@code t}.
+   */
+  public long intendedOffsetNanos(long index) {
+    double seconds;
+    double acceleration = (endRate - startRate) / (durationNanos / 1e9);
+    if (acceleration == 0) {
+      seconds = index / startRate;
+    } else {
+      seconds = (Math.sqrt(startRate * startRate + 2 * acceleration * index) - startRate) / acceleration;
+    }
+    return (long) (seconds * 1e9);
+  }
+}
@@ -0,0 +1,165 @@
+package org.qwertech.cadenceplay.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Outcome of a {@link LoadGenerator} run. Latencies are in microseconds:
+ * <ul>
+ * <li>{@code startLatency} from the intended start time to the acknowledgement, corrected for coordinated omission: a start delayed because the generator
+ * fell behind is charged for the delay</li>
+ * <li>{@code serviceTime} from sending the start to the acknowledgement, what a closed-loop client would report</li>
+ * <li>{@code endToEndLatency} from the intended start time to workflow completion, if completion was awaited</li>
+ * </ul>
+ */
+public class LoadResult {
+
+  private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+  @Getter
+  private final LoadProfile profile;
+  @Getter
+  private final int maxInFlight;
+  private final ConcurrentHistogram startLatency = new ConcurrentHistogram(3);
+  private final ConcurrentHistogram serviceTime = new ConcurrentHistogram(3);
+  private final ConcurrentHistogram endToEndLatency = new ConcurrentHistogram(3);
+  private final LongAdder started = new LongAdder();
+  private final LongAdder failedStarts = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failedCompletions = new LongAdder();
+  private volatile long elapsedNanos;
+
+  LoadResult(LoadProfile profile, int maxInFlight) {
+    this.profile = profile;
+    this.maxInFlight = maxInFlight;
+  }
+
+  void started(long intendedNanos, long sentNanos, long acknowledgedNanos) {
+    started.increment();
+    startLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(acknowledgedNanos - intendedNanos));
+    serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(acknowledgedNanos - sentNanos));
+  }
+
+  void failedStart() {
+    failedStarts.increment();
+  }
+
+  void completed(long intendedNanos, long completedNanos) {
+    completed.increment();
+    endToEndLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(completedNanos - intendedNanos));
+  }
+
+  void failedCompletion() {
+    failedCompletions.increment();
+  }
+
+  void finish(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public long getStarted() {
+    return started.sum();
+  }
+
+  public long getFailedStarts() {
+    return failedStarts.sum();
+  }
+
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  public long getFailedCompletions() {
+    return failedCompletions.sum();
+  }
+
+  public Histogram getStartLatency() {
+    return startLatency.copy();
+  }
+
+  public Histogram getServiceTime() {
+    return serviceTime.copy();
+  }
+
+  public Histogram getEndToEndLatency() {
+    return endToEndLatency.copy();
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public double getAchievedRate() {
+    return elapsedNanos == 0 ? 0 : getStarted() / (elapsedNanos / 1e9);
+  }
+
+  /**
+   * Writes the configuration, counters, percentiles and the compressed histograms as JSON, so that runs can be compared and histograms merged later.
+   */
+  @SneakyThrows
+  public void writeJson(Path file) {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("startRate", profile.getStartRate());
+    json.put("endRate", profile.getEndRate());
+    json.put("durationSeconds", profile.getDurationNanos() / 1e9);
+    json.put("maxInFlight", maxInFlight);
+    json.put("elapsedSeconds", elapsedNanos / 1e9);
+    json.put("achievedRate", getAchievedRate());
+    json.put("started", started.sum());
+    json.put("failedStarts", failedStarts.sum());
+    json.put("completed", completed.sum());
+    json.put("failedCompletions", failedCompletions.sum());
+    json.put("startLatencyMicros", summary(startLatency));
+    json.put("serviceTimeMicros", summary(serviceTime));
+    json.put("endToEndLatencyMicros", summary(endToEndLatency));
+    JSON.writeValue(file.toFile(), json);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("started=%d (%.1f/s), failedStarts=%d, completed=%d, failedCompletions=%d%n  start latency ms   %s%n  service time ms    %s%n"
+            + "  end-to-end ms      %s", started.sum(), getAchievedRate(), failedStarts.sum(), completed.sum(), failedCompletions.sum(),
+        percentiles(startLatency), percentiles(serviceTime), percentiles(endToEndLatency));
+  }
+
+  private static Map<String, Object> summary(Histogram histogram) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("count", histogram.getTotalCount());
+    summary.put("mean", histogram.getMean());
+    for (double percentile : PERCENTILES) {
+      summary.put(label(percentile), histogram.getValueAtPercentile(percentile));
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+    summary.put("histogram", Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+    return summary;
+  }
+
+  private static String percentiles(Histogram histogram) {
+    StringBuilder line = new StringBuilder();
+    for (double percentile : PERCENTILES) {
+      line.append(String.format("%s=%.1f ", label(percentile), histogram.getValueAtPercentile(percentile) / 1000.0));
+    }
+    return line.toString().trim();
+  }
+
+  private static String label(double percentile) {
+    if (percentile == 100) {
+      return "max";
+    }
+    return "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile));
+  }
+}
@@ -0,0 +1,139 @@
+package org.qwertech.cadenceplay.load;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.qwertech.cadenceplay.load.StressResult.Operation;
+
+/**
+ * Closed-loop signal and query stress against running workflows: {@code concurrency} threads of a dedicated pool each pick a random workflow and send it
+ * a query with probability {@code queryRatio}, a signal otherwise, back to back until {@code duration} is over. Raising the concurrency until throughput
+ * stops growing finds the ceiling of the worker behind the workflows.
+ */
+@Slf4j
+public class SignalQueryStress {
+
+  private final int concurrency;
+  private final double queryRatio;
+  private final long durationNanos;
+  private final long operationTimeoutNanos;
+
+  /**
+   * @param operationTimeout calls taking longer count as timeouts, and the run waits this long for calls in flight when the duration is over
+   */
+  public SignalQueryStress(int concurrency, double queryRatio, long duration, long operationTimeout, TimeUnit unit) {
+    if (concurrency < 1 || queryRatio < 0 || queryRatio > 1) {
+      throw new IllegalArgumentException("Invalid stress: concurrency " + concurrency + ", query ratio " + queryRatio);
+    }
+    this.concurrency = concurrency;
+    this.queryRatio = queryRatio;
+    this.durationNanos = unit.toNanos(duration);
+    this.operationTimeoutNanos = unit.toNanos(operationTimeout);
+  }
+
+  @SneakyThrows
+  public <T> StressResult run(List<T> workflows, Consumer<T> signal, Consumer<T> query) {
+    StressResult result = new StressResult();
+    Map<Object, Operation> inFlight = new ConcurrentHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder().setNameFormat("signal-query-stress-%d").setDaemon(true).build());
+    long start = System.nanoTime();
+    long deadline = start + durationNanos;
+    try {
+      List<Future<?>> threads = new ArrayList<>();
+      for (int i = 0; i < concurrency; i++) {
+        threads.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          while (System.nanoTime() - deadline < 0 && !Thread.currentThread().isInterrupted()) {
+            T workflow = workflows.get(random.nextInt(workflows.size()));
+            boolean isQuery = random.nextDouble() < queryRatio;
+            call(isQuery ? Operation.QUERY : Operation.SIGNAL, () -> (isQuery ? query : signal).accept(workflow), result, inFlight);
+          }
+        }));
+      }
+      for (Future<?> thread : threads) {
+        long remaining = deadline + operationTimeoutNanos - System.nanoTime();
+        try {
+          thread.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          break;
+        }
+      }
+      // calls still running are abandoned and counted as timeouts here, they record nothing when they end
+      for (Object call : inFlight.keySet()) {
+        Operation operation = inFlight.remove(call);
+        if (operation != null) {
+          result.timedOut(operation);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    if (!executor.awaitTermination(operationTimeoutNanos, TimeUnit.NANOSECONDS)) {
+      log.warn("[run] stress threads did not stop within {}ms after interruption", TimeUnit.NANOSECONDS.toMillis(operationTimeoutNanos));
+    }
+    result.finish(System.nanoTime() - start);
+    log.info("[run] {} workflows, concurrency {}, query ratio {}: {}", workflows.size(), concurrency, queryRatio, result);
+    return result;
+  }
+
+  /**
+   * Records the call unless it was abandoned at the end of the run, which removes it from {@code inFlight} and counts it as a timeout.
+   */
+  private void call(Operation operation, Runnable call, StressResult result, Map<Object, Operation> inFlight) {
+    Object key = new Object();
+    inFlight.put(key, operation);
+    long start = System.nanoTime();
+    try {
+      call.run();
+      long latency = System.nanoTime() - start;
+      if (inFlight.remove(key) == null) {
+        return;
+      }
+      if (latency > operationTimeoutNanos) {
+        result.timedOut(operation);
+      } else {
+        result.succeeded(operation, latency);
+      }
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (inFlight.remove(key) == null) {
+        return;
+      }
+      if (isTimeout(e)) {
+        result.timedOut(operation);
+      } else {
+        result.failed(operation, type(e));
+      }
+    }
+  }
+
+  private static boolean isTimeout(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+      if (cause instanceof TimeoutException || cause.getClass().getSimpleName().contains("Timeout")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String type(Throwable error) {
+    Throwable root = error;
+    while (root.getCause() != null && root.getCause() != root) {
+      root = root.getCause();
+    }
+    return root == error ? error.getClass().getSimpleName() : error.getClass().getSimpleName() + "/" + root.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,94 @@
+package org.qwertech.cadenceplay.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Outcome of a {@link SignalQueryStress} run, per operation: latency of successful calls in microseconds, errors by exception type and timeouts. A call
+ * counts as a timeout when it failed with a timeout, took longer than the operation timeout, or was still running when the run ended.
+ */
+public class StressResult {
+
+  public enum Operation {
+    SIGNAL, QUERY
+  }
+
+  private final Map<Operation, ConcurrentHistogram> latencyMicros = new EnumMap<>(Operation.class);
+  private final Map<Operation, LongAdder> timeouts = new EnumMap<>(Operation.class);
+  private final Map<Operation, Map<String, LongAdder>> errors = new EnumMap<>(Operation.class);
+  private volatile long elapsedNanos;
+
+  StressResult() {
+    for (Operation operation : Operation.values()) {
+      latencyMicros.put(operation, new ConcurrentHistogram(3));
+      timeouts.put(operation, new LongAdder());
+      errors.put(operation, new ConcurrentHashMap<>());
+    }
+  }
+
+  void succeeded(Operation operation, long latencyNanos) {
+    latencyMicros.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+  }
+
+  void timedOut(Operation operation) {
+    timeouts.get(operation).increment();
+  }
+
+  void failed(Operation operation, String type) {
+    errors.get(operation).computeIfAbsent(type, key -> new LongAdder()).increment();
+  }
+
+  void finish(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public long getSucceeded(Operation operation) {
+    return latencyMicros.get(operation).getTotalCount();
+  }
+
+  public long getTimeouts(Operation operation) {
+    return timeouts.get(operation).sum();
+  }
+
+  /**
+   * Failures other than timeouts by exception type, with the root cause when it differs.
+   */
+  public Map<String, Long> getErrors(Operation operation) {
+    Map<String, Long> counts = new TreeMap<>();
+    errors.get(operation).forEach((type, count) -> counts.put(type, count.sum()));
+    return counts;
+  }
+
+  /**
+   * Copy of the latency histogram of successful calls, in microseconds.
+   */
+  public Histogram getLatencyMicros(Operation operation) {
+    return latencyMicros.get(operation).copy();
+  }
+
+  /**
+   * Successful calls per second.
+   */
+  public double getThroughput(Operation operation) {
+    return elapsedNanos == 0 ? 0 : getSucceeded(operation) * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder summary = new StringBuilder(String.format("elapsed=%dms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+    for (Operation operation : Operation.values()) {
+      Histogram latency = getLatencyMicros(operation);
+      summary.append(String.format("%n%s: succeeded=%d, rate=%.1f/s, timeouts=%d, errors=%s, latency ms p50=%.1f p90=%.1f p99=%.1f max=%.1f", operation,
+          getSucceeded(operation), getThroughput(operation), getTimeouts(operation), getErrors(operation),
+          latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+          latency.getMaxValue() / 1000.0));
+    }
+    return summary.toString();
+  }
+}
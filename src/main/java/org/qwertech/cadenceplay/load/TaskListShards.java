@@ -0,0 +1,55 @@
+package org.qwertech.cadenceplay.load;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Spreads workflows of one kind over {@code count} task lists named {@code <base>-<shard>}; a single shard keeps the plain base name. A workflow id is routed
+ * with a consistent hash, so the same id always lands on the same task list, and adding a shard moves only about {@code 1 / count} of the ids.
+ */
+public class TaskListShards {
+
+  @Getter
+  private final String baseName;
+  @Getter
+  private final int count;
+
+  public TaskListShards(String baseName, int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("Shard count must be positive: " + count);
+    }
+    this.baseName = baseName;
+    this.count = count;
+  }
+
+  public String taskListOf(String workflowId) {
+    return name(Hashing.consistentHash(Hashing.murmur3_128().hashString(workflowId, StandardCharsets.UTF_8), count));
+  }
+
+  public String name(int shard) {
+    return count == 1 ? baseName : baseName + "-" + shard;
+  }
+
+  public List<String> all() {
+    return assignedTo(0, 1);
+  }
+
+  /**
+   * Task lists polled by worker process {@code process} of {@code processes}, shards dealt round-robin. With more processes than shards, processes share
+   * shards instead of idling.
+   */
+  public List<String> assignedTo(int process, int processes) {
+    List<String> names = new ArrayList<>();
+    if (processes > count) {
+      names.add(name(process % count));
+      return names;
+    }
+    for (int shard = process; shard < count; shard += processes) {
+      names.add(name(shard));
+    }
+    return names;
+  }
+}
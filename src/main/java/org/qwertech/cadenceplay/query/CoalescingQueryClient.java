@@ -0,0 +1,190 @@
+package org.qwertech.cadenceplay.query;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.uber.cadence.client.WorkflowClient;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.SneakyThrows;
+import lombok.Value;
+
+/**
+ * Queries workflows by id so that concurrent identical queries, same workflow, query type and arguments, share one RPC: the first caller runs the query
+ * and the others wait for its result. Each query is answered by a decision task on the worker, so a hot workflow read by many clients costs one task
+ * per burst instead of one per reader.
+ * <p>
+ * Results can also be kept in a bounded cache for a short time. Signals sent through this client drop cached results of the signaled workflow and
+ * detach queries in flight, so a reader sees its own updates. Results are shared between callers and must not be modified.
+ */
+public class CoalescingQueryClient {
+
+  interface Transport {
+
+    Object query(String workflowId, String queryType, Class<?> resultClass, Object[] args);
+
+    void signal(String workflowId, String signalName, Object[] args);
+  }
+
+  @Value
+  private static class Key {
+
+    String workflowId;
+    String queryType;
+    List<Object> args;
+  }
+
+  private static class Flight {
+
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+    private volatile boolean stale;
+  }
+
+  private final Transport transport;
+  private final Cache<Key, Object> cache;
+  private final ConcurrentMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder queries = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+
+  /**
+   * Coalescing only, without a cache.
+   */
+  public CoalescingQueryClient(WorkflowClient client) {
+    this(transport(client), 0, 0, Ticker.systemTicker());
+  }
+
+  /**
+   * @param maximumSize results kept at most, 0 for no cache
+   * @param ttl how long a result is served from the cache
+   */
+  public CoalescingQueryClient(WorkflowClient client, long maximumSize, long ttl, TimeUnit unit) {
+    this(transport(client), maximumSize, unit.toNanos(ttl), Ticker.systemTicker());
+  }
+
+  CoalescingQueryClient(Transport transport, long maximumSize, long ttlNanos, Ticker ticker) {
+    this.transport = transport;
+    this.cache = maximumSize > 0 && ttlNanos > 0
+        ? CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttlNanos, TimeUnit.NANOSECONDS).ticker(ticker).build()
+        : null;
+  }
+
+  /**
+   * @param queryType e.g. {@code LongWorkflow::getState}
+   */
+  public <R> R query(String workflowId, String queryType, Class<R> resultClass, Object... args) {
+    Key key = new Key(workflowId, queryType, Arrays.asList(args));
+    if (cache != null) {
+      Object cached = cache.getIfPresent(key);
+      if (cached != null) {
+        cacheHits.increment();
+        return resultClass.cast(cached);
+      }
+    }
+    Flight flight = new Flight();
+    Flight leader = inFlight.putIfAbsent(key, flight);
+    if (leader != null) {
+      coalesced.increment();
+      return resultClass.cast(await(leader));
+    }
+    try {
+      queries.increment();
+      Object result = transport.query(workflowId, queryType, resultClass, args);
+      if (cache != null && result != null) {
+        cache.put(key, result);
+        // a signal raced with the query, its result may predate the signal
+        if (flight.stale) {
+          cache.invalidate(key);
+        }
+      }
+      flight.result.complete(result);
+      return resultClass.cast(result);
+    } catch (Throwable e) {
+      flight.result.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /**
+   * Signals the workflow, then forgets what is known about its state.
+   *
+   * @param signalName e.g. {@code LongWorkflow::update}
+   */
+  public void signal(String workflowId, String signalName, Object... args) {
+    try {
+      transport.signal(workflowId, signalName, args);
+    } finally {
+      invalidate(workflowId);
+    }
+  }
+
+  /**
+   * Drops cached results of the workflow, and queries in flight for it are no longer joined or cached.
+   */
+  public void invalidate(String workflowId) {
+    inFlight.forEach((key, flight) -> {
+      if (key.getWorkflowId().equals(workflowId)) {
+        flight.stale = true;
+        inFlight.remove(key, flight);
+      }
+    });
+    if (cache != null) {
+      cache.asMap().keySet().removeIf(key -> key.getWorkflowId().equals(workflowId));
+    }
+  }
+
+  /**
+   * Queries sent to the service.
+   */
+  public long getQueries() {
+    return queries.sum();
+  }
+
+  /**
+   * Queries answered by joining one in flight.
+   */
+  public long getCoalesced() {
+    return coalesced.sum();
+  }
+
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("queries=%d, coalesced=%d, cacheHits=%d", getQueries(), getCoalesced(), getCacheHits());
+  }
+
+  @SneakyThrows
+  private static Object await(Flight flight) {
+    try {
+      return flight.result.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static Transport transport(WorkflowClient client) {
+    return new Transport() {
+      @Override
+      public Object query(String workflowId, String queryType, Class<?> resultClass, Object[] args) {
+        return client.newUntypedWorkflowStub(workflowId, Optional.empty(), Optional.empty()).query(queryType, resultClass, args);
+      }
+
+      @Override
+      public void signal(String workflowId, String signalName, Object[] args) {
+        client.newUntypedWorkflowStub(workflowId, Optional.empty(), Optional.empty()).signal(signalName, args);
+      }
+    };
+  }
+}
@@ -0,0 +1,93 @@
+package org.qwertech.cadenceplay.subscription;
+
+import com.uber.cadence.converter.DataConverter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Client side of a state subscription in the worker process: register it as an activity implementation and signal {@link StatePublisher#LOCAL_SUBSCRIBER}
+ * to the publishing workflow's subscribe method. Only changes published by workflow tasks that run on this worker arrive here.
+ * <p>
+ * The latest version of every workflow is kept until {@link #forget}, so a reader that asks for the next version never misses one published before it
+ * started to wait.
+ */
+@Slf4j
+public class LocalStateListeners implements StateListenerActivity {
+
+  private final DataConverter converter;
+  private final Map<String, Versioned<byte[]>> latest = new ConcurrentHashMap<>();
+  private final Map<String, List<Consumer<Versioned<byte[]>>>> listeners = new ConcurrentHashMap<>();
+
+  public LocalStateListeners(DataConverter converter) {
+    this.converter = converter;
+  }
+
+  @Override
+  public void stateChanged(String workflowId, long version, byte[] state) {
+    Versioned<byte[]> change = new Versioned<>(version, state);
+    synchronized (this) {
+      Versioned<byte[]> previous = latest.get(workflowId);
+      // the local activity is retried and may deliver a version again
+      if (previous != null && previous.getVersion() >= version) {
+        return;
+      }
+      latest.put(workflowId, change);
+      notifyAll();
+    }
+    for (Consumer<Versioned<byte[]>> listener : listeners.getOrDefault(workflowId, Collections.emptyList())) {
+      try {
+        listener.accept(change);
+      } catch (RuntimeException e) {
+        log.warn("[stateChanged] listener of {} failed", workflowId, e);
+      }
+    }
+  }
+
+  /**
+   * Calls the listener with every new version of the workflow's state, on the activity thread.
+   *
+   * @return removes the listener
+   */
+  public <T> Runnable listen(String workflowId, Class<T> stateClass, Consumer<Versioned<T>> listener) {
+    Consumer<Versioned<byte[]>> decoding = change -> listener.accept(decode(change, stateClass));
+    listeners.computeIfAbsent(workflowId, key -> new CopyOnWriteArrayList<>()).add(decoding);
+    return () -> listeners.computeIfPresent(workflowId, (key, registered) -> {
+      registered.remove(decoding);
+      return registered.isEmpty() ? null : registered;
+    });
+  }
+
+  /**
+   * Blocks until a version newer than {@code afterVersion} of the workflow's state arrives.
+   */
+  public synchronized <T> Versioned<T> awaitNext(String workflowId, long afterVersion, Class<T> stateClass, long timeout, TimeUnit unit)
+      throws InterruptedException, TimeoutException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Versioned<byte[]> change = latest.get(workflowId);
+    while (change == null || change.getVersion() <= afterVersion) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        throw new TimeoutException("No version of " + workflowId + " after " + afterVersion + " in " + timeout + " " + unit);
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      change = latest.get(workflowId);
+    }
+    return decode(change, stateClass);
+  }
+
+  public void forget(String workflowId) {
+    latest.remove(workflowId);
+    listeners.remove(workflowId);
+  }
+
+  private <T> Versioned<T> decode(Versioned<byte[]> change, Class<T> stateClass) {
+    return new Versioned<>(change.getVersion(), converter.fromData(change.getValue(), stateClass, stateClass));
+  }
+}
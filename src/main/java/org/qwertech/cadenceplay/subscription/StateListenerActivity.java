@@ -0,0 +1,9 @@
+package org.qwertech.cadenceplay.subscription;
+
+/**
+ * Local activity through which a {@link StatePublisher} reaches {@link LocalStateListeners} in the worker process.
+ */
+public interface StateListenerActivity {
+
+  void stateChanged(String workflowId, long version, byte[] state);
+}
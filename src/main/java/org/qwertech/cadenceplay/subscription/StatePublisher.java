@@ -0,0 +1,131 @@
+package org.qwertech.cadenceplay.subscription;
+
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.workflow.ActivityException;
+import com.uber.cadence.workflow.Async;
+import com.uber.cadence.workflow.ExternalWorkflowStub;
+import com.uber.cadence.workflow.LocalActivityOptions;
+import com.uber.cadence.workflow.Promise;
+import com.uber.cadence.workflow.SignalExternalWorkflowException;
+import com.uber.cadence.workflow.Workflow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+
+/**
+ * Workflow side of a state subscription: pushes each new version of the workflow's state to subscribers, so they block on the next version instead of
+ * querying in a loop. A subscriber is either a workflow, signaled with {@code (long version, T state)}, or {@link #LOCAL_SUBSCRIBER}, which calls
+ * {@link LocalStateListeners} registered on the worker running the publishing workflow. A new subscriber gets the current version first.
+ * <p>
+ * Signal handlers call {@link #subscribe}, {@link #unsubscribe} and {@link #update}, the workflow method runs {@link #publish} whenever {@link #isPending}.
+ * Changes made between two publishes are sent once, as the latest version. Subscribers that can no longer be signaled are dropped.
+ */
+public class StatePublisher<T> {
+
+  public static final String LOCAL_SUBSCRIBER = "local:";
+
+  private static final Logger log = Workflow.getLogger(StatePublisher.class);
+  private static final Duration LOCAL_LISTENER_TIMEOUT = Duration.ofSeconds(10);
+
+  private final String signalName;
+  private final DataConverter converter;
+  private final Set<String> subscribers = new LinkedHashSet<>();
+  private final Set<String> newSubscribers = new LinkedHashSet<>();
+  private T state;
+  private long version;
+  private long publishedVersion;
+  private StateListenerActivity localListeners;
+
+  /**
+   * @param signalName signal of subscriber workflows taking the version and the state
+   * @param converter serializes the state for local listeners
+   */
+  public StatePublisher(String signalName, DataConverter converter, T initialState) {
+    this.signalName = signalName;
+    this.converter = converter;
+    this.state = initialState;
+  }
+
+  public void subscribe(String workflowId) {
+    if (!subscribers.contains(workflowId)) {
+      newSubscribers.add(workflowId);
+    }
+  }
+
+  public void unsubscribe(String workflowId) {
+    subscribers.remove(workflowId);
+    newSubscribers.remove(workflowId);
+  }
+
+  public void update(T state) {
+    this.state = state;
+    version++;
+  }
+
+  public T getState() {
+    return state;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Subscribers every change is published to, new ones join on the next publish.
+   */
+  public Set<String> getSubscribers() {
+    return Collections.unmodifiableSet(subscribers);
+  }
+
+  public boolean isPending() {
+    return version != publishedVersion || !newSubscribers.isEmpty();
+  }
+
+  /**
+   * Sends the current version to new subscribers, and to all of them if it changed since the last publish. Signals go out in parallel, the call returns
+   * when all were delivered or failed.
+   */
+  public void publish() {
+    List<String> targets = new ArrayList<>(newSubscribers);
+    if (version != publishedVersion) {
+      targets.addAll(subscribers);
+    }
+    subscribers.addAll(newSubscribers);
+    newSubscribers.clear();
+    publishedVersion = version;
+    String workflowId = Workflow.getWorkflowInfo().getWorkflowId();
+    long publishing = version;
+    T published = state;
+    Map<String, Promise<Void>> deliveries = new LinkedHashMap<>();
+    for (String target : targets) {
+      if (LOCAL_SUBSCRIBER.equals(target)) {
+        deliveries.put(target, Async.procedure(localListeners()::stateChanged, workflowId, publishing, converter.toData(published)));
+      } else {
+        ExternalWorkflowStub subscriber = Workflow.newUntypedExternalWorkflowStub(target);
+        deliveries.put(target, Async.procedure(() -> subscriber.signal(signalName, publishing, published)));
+      }
+    }
+    deliveries.forEach((target, delivery) -> {
+      try {
+        delivery.get();
+      } catch (SignalExternalWorkflowException | ActivityException e) {
+        log.warn("[publish] dropped subscriber {} of {}: {}", target, workflowId, e.getMessage());
+        subscribers.remove(target);
+      }
+    });
+  }
+
+  private StateListenerActivity localListeners() {
+    if (localListeners == null) {
+      localListeners = Workflow.newLocalActivityStub(StateListenerActivity.class,
+          new LocalActivityOptions.Builder().setScheduleToCloseTimeout(LOCAL_LISTENER_TIMEOUT).build());
+    }
+    return localListeners;
+  }
+}
@@ -0,0 +1,13 @@
+package org.qwertech.cadenceplay.subscription;
+
+import lombok.Value;
+
+/**
+ * State published by a {@link StatePublisher}, versions grow by one per change.
+ */
+@Value
+public class Versioned<T> {
+
+  long version;
+  T value;
+}
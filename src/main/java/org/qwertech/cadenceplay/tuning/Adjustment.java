@@ -0,0 +1,26 @@
+package org.qwertech.cadenceplay.tuning;
+
+import java.time.Instant;
+import lombok.Value;
+
+/**
+ * One change made by the {@link WorkerAutoTuner}, with the observation that caused it.
+ */
+@Value
+public class Adjustment {
+
+  Instant time;
+  TaskKind kind;
+  Knob knob;
+  int from;
+  int to;
+  String reason;
+
+  public enum TaskKind {
+    DECISION, ACTIVITY
+  }
+
+  public enum Knob {
+    POLLERS, CONCURRENCY
+  }
+}
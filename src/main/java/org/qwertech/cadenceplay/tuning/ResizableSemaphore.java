@@ -0,0 +1,32 @@
+package org.qwertech.cadenceplay.tuning;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Semaphore whose number of permits can be changed while they are held. Shrinking below the permits in use takes effect as they are released.
+ */
+class ResizableSemaphore extends Semaphore {
+
+  private static final long serialVersionUID = 1L;
+
+  private int limit;
+
+  ResizableSemaphore(int limit) {
+    super(limit);
+    this.limit = limit;
+  }
+
+  synchronized int getLimit() {
+    return limit;
+  }
+
+  synchronized void setLimit(int newLimit) {
+    int delta = newLimit - limit;
+    limit = newLimit;
+    if (delta > 0) {
+      release(delta);
+    } else if (delta < 0) {
+      reducePermits(-delta);
+    }
+  }
+}
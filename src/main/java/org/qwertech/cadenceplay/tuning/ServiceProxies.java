@@ -0,0 +1,46 @@
+package org.qwertech.cadenceplay.tuning;
+
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import lombok.experimental.UtilityClass;
+import org.apache.thrift.TException;
+
+/**
+ * {@link IWorkflowService} proxies that watch or hold back the calls a worker makes.
+ */
+@UtilityClass
+class ServiceProxies {
+
+  IWorkflowService proxy(Handler handler) {
+    return (IWorkflowService) Proxy.newProxyInstance(ServiceProxies.class.getClassLoader(), new Class<?>[]{IWorkflowService.class},
+        (proxy, method, args) -> handler.invoke(method, args));
+  }
+
+  /**
+   * Calls the delegate, rethrowing what it throws as is.
+   */
+  Object call(IWorkflowService delegate, Method method, Object[] args) throws TException {
+    try {
+      return method.invoke(delegate, args);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TException) {
+        throw (TException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new TException(cause);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  interface Handler {
+
+    Object invoke(Method method, Object[] args) throws TException;
+  }
+}
@@ -0,0 +1,345 @@
+package org.qwertech.cadenceplay.tuning;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.uber.cadence.Decision;
+import com.uber.cadence.DecisionType;
+import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.RespondDecisionTaskCompletedRequest;
+import com.uber.cadence.RespondDecisionTaskFailedRequest;
+import com.uber.cadence.ResetStickyTaskListRequest;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import com.uber.cadence.worker.Worker;
+import com.uber.m3.tally.Scope;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.qwertech.cadenceplay.tuning.WorkflowThreadMonitor.Snapshot;
+
+/**
+ * Frees workflow threads before new decision tasks starve. The client evicts from its sticky cache only when a decision task finds no free thread, and
+ * picks the execution to evict without regard to how long it has been waiting. This evictor watches decision tasks through {@link #getService()} to know
+ * which executions are cached, and when {@link WorkflowThreadMonitor} sees fewer than {@code reserve} free workflow threads, it evicts cached executions
+ * that are not being processed, least recently used first, weighted by how long each one usually waits between decision tasks: an execution idle for
+ * hours on a signal goes before one that just missed its next timer.
+ * <p>
+ * An evicted execution gets its sticky task list reset, so its next decision task replays the full history on any worker.
+ */
+@Slf4j
+public class StickyCacheEvictor implements AutoCloseable {
+
+  private static final Set<DecisionType> CLOSING_DECISIONS = EnumSet.of(DecisionType.CompleteWorkflowExecution, DecisionType.FailWorkflowExecution,
+      DecisionType.CancelWorkflowExecution, DecisionType.ContinueAsNewWorkflowExecution);
+  private static final String DECIDER_CACHE_CLASS = "com.uber.cadence.internal.replay.DeciderCache";
+
+  private final IWorkflowService delegate;
+  private final IWorkflowService service;
+  private final String domain;
+  private final WorkflowThreadMonitor monitor;
+  private final int reserve;
+  private final Scope metrics;
+  private final Map<String, CachedExecution> executions = new HashMap<>();
+  private final Map<ByteBuffer, DecisionTask> processing = new HashMap<>();
+  private volatile CacheInvalidator cache;
+  private ScheduledExecutorService scheduler;
+
+  public StickyCacheEvictor(IWorkflowService delegate, String domain, WorkflowThreadMonitor monitor, int reserve) {
+    this(delegate, domain, monitor, reserve, NoopScope.getInstance());
+  }
+
+  /**
+   * @param reserve free workflow threads to keep for new decision tasks
+   */
+  public StickyCacheEvictor(IWorkflowService delegate, String domain, WorkflowThreadMonitor monitor, int reserve, Scope metrics) {
+    this.delegate = delegate;
+    this.domain = domain;
+    this.monitor = monitor;
+    this.reserve = reserve;
+    this.metrics = metrics;
+    this.service = ServiceProxies.proxy(this::invoke);
+  }
+
+  /**
+   * Service to create the {@link Worker.Factory} with.
+   */
+  public IWorkflowService getService() {
+    return service;
+  }
+
+  /**
+   * Connects to the sticky cache of the factory. The 2.7 client doesn't expose it, so it is looked up by type; if that fails, the evictor only resets
+   * sticky task lists and the client evicts when it replays.
+   */
+  public void attach(Worker.Factory factory) {
+    try {
+      for (Field field : Worker.Factory.class.getDeclaredFields()) {
+        if (field.getType().getName().equals(DECIDER_CACHE_CLASS)) {
+          field.setAccessible(true);
+          Object deciderCache = field.get(factory);
+          Method invalidate = deciderCache.getClass().getMethod("invalidate", String.class);
+          attach(runId -> invalidate.invoke(deciderCache, runId));
+          return;
+        }
+      }
+      log.warn("[attach] no sticky cache found in {}, evicting by sticky task list reset only", factory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.warn("[attach] sticky cache of {} is not accessible, evicting by sticky task list reset only", factory, e);
+    }
+  }
+
+  void attach(CacheInvalidator cache) {
+    this.cache = cache;
+  }
+
+  public synchronized void start(Duration interval) {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("sticky-cache-evictor").setDaemon(true).build());
+      scheduler.scheduleWithFixedDelay(this::evictIfStarved, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public synchronized int getCachedCount() {
+    return executions.size();
+  }
+
+  /**
+   * @return number of evicted executions
+   */
+  int evictIfStarved() {
+    try {
+      int expired = expire(WorkerAutoTuner.EXPIRY_GRACE_SECONDS, TimeUnit.SECONDS);
+      if (expired > 0) {
+        log.warn("[evictIfStarved] {} decision tasks were not responded to within their timeout, their executions can be evicted", expired);
+      }
+      Snapshot snapshot = monitor.scan();
+      int free = snapshot.getMaxWorkflowThreadCount() - snapshot.getTaken();
+      return free < reserve ? evict(reserve - free) : 0;
+    } catch (RuntimeException e) {
+      log.error("[evictIfStarved] eviction failed", e);
+      return 0;
+    }
+  }
+
+  /**
+   * Forgets decision tasks that were not responded to within their timeout plus {@code grace}, e.g. timed out or dropped by the worker, so their
+   * executions become idle again.
+   *
+   * @return number of expired decision tasks
+   */
+  synchronized int expire(long grace, TimeUnit unit) {
+    long now = System.nanoTime();
+    long graceNanos = unit.toNanos(grace);
+    int expired = 0;
+    for (Iterator<Map.Entry<ByteBuffer, DecisionTask>> tasks = processing.entrySet().iterator(); tasks.hasNext(); ) {
+      Map.Entry<ByteBuffer, DecisionTask> task = tasks.next();
+      if (task.getValue().deadlineNanos + graceNanos - now < 0) {
+        tasks.remove();
+        CachedExecution execution = executions.get(task.getValue().runId);
+        if (execution != null && task.getKey().equals(execution.task)) {
+          execution.responded(now);
+        }
+        expired++;
+      }
+    }
+    return expired;
+  }
+
+  synchronized int getProcessingCount() {
+    return processing.size();
+  }
+
+  /**
+   * Evicts up to {@code count} idle cached executions, highest score first. Victims stay in the cache marked as evicting while their sticky task list is
+   * reset, so a decision task polled in the meantime cancels the eviction instead of losing its decider.
+   */
+  int evict(int count) {
+    long now = System.nanoTime();
+    List<CachedExecution> victims;
+    synchronized (this) {
+      victims = executions.values().stream()
+          .filter(execution -> !execution.processing && !execution.evicting)
+          .sorted(Comparator.comparingLong((CachedExecution execution) -> execution.score(now)).reversed())
+          .limit(count)
+          .collect(Collectors.toList());
+      victims.forEach(execution -> execution.evicting = true);
+    }
+    int evicted = 0;
+    for (CachedExecution victim : victims) {
+      if (evict(victim, now)) {
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  private boolean evict(CachedExecution victim, long now) {
+    WorkflowExecution execution = victim.execution;
+    try {
+      delegate.ResetStickyTaskList(new ResetStickyTaskListRequest().setDomain(domain).setExecution(execution));
+    } catch (Exception e) {
+      log.warn("[evict] failed to evict {}", execution, e);
+      synchronized (this) {
+        victim.evicting = false;
+      }
+      return false;
+    }
+    synchronized (this) {
+      if (!victim.evicting) {
+        log.debug("[evict] {} got a decision task while being evicted, keeping it cached", execution);
+        return false;
+      }
+      executions.remove(execution.getRunId());
+      CacheInvalidator invalidator = cache;
+      if (invalidator != null) {
+        try {
+          invalidator.invalidate(execution.getRunId());
+        } catch (Exception e) {
+          log.warn("[evict] failed to invalidate cached decider of {}", execution, e);
+        }
+      }
+    }
+    metrics.counter("sticky-cache-evictions").inc(1);
+    log.info("[evict] evicted {} idle for {}ms, usually idle for {}ms", execution, TimeUnit.NANOSECONDS.toMillis(now - victim.lastActivityNanos),
+        TimeUnit.NANOSECONDS.toMillis(victim.meanGapNanos()));
+    return true;
+  }
+
+  private Object invoke(Method method, Object[] args) throws TException {
+    switch (method.getName()) {
+      case "PollForDecisionTask":
+        PollForDecisionTaskResponse task = (PollForDecisionTaskResponse) call(method, args);
+        if (task != null && task.getTaskToken() != null && !task.isSetQuery()) {
+          started(task);
+        }
+        return task;
+      case "RespondDecisionTaskCompleted":
+        RespondDecisionTaskCompletedRequest completed = (RespondDecisionTaskCompletedRequest) args[0];
+        try {
+          return call(method, args);
+        } finally {
+          responded(completed.getTaskToken(), completed.isSetStickyAttributes() && !closes(completed.getDecisions()));
+        }
+      case "RespondDecisionTaskFailed":
+        try {
+          return call(method, args);
+        } finally {
+          responded(((RespondDecisionTaskFailedRequest) args[0]).getTaskToken(), false);
+        }
+      default:
+        return call(method, args);
+    }
+  }
+
+  private synchronized void started(PollForDecisionTaskResponse task) {
+    WorkflowExecution execution = task.getWorkflowExecution();
+    long now = System.nanoTime();
+    ByteBuffer token = ByteBuffer.wrap(task.getTaskToken());
+    processing.put(token, new DecisionTask(execution.getRunId(), now + TimeUnit.SECONDS.toNanos(WorkerAutoTuner.decisionTimeoutSeconds(task))));
+    executions.computeIfAbsent(execution.getRunId(), runId -> new CachedExecution(execution)).started(token, now);
+  }
+
+  private synchronized void responded(byte[] token, boolean cached) {
+    DecisionTask task = token == null ? null : processing.remove(ByteBuffer.wrap(token));
+    if (task == null) {
+      return;
+    }
+    String runId = task.runId;
+    if (cached) {
+      CachedExecution execution = executions.get(runId);
+      if (execution != null) {
+        execution.responded(System.nanoTime());
+      }
+    } else {
+      executions.remove(runId);
+    }
+  }
+
+  private static boolean closes(List<Decision> decisions) {
+    return decisions != null && decisions.stream().anyMatch(decision -> CLOSING_DECISIONS.contains(decision.getDecisionType()));
+  }
+
+  private Object call(Method method, Object[] args) throws TException {
+    return ServiceProxies.call(delegate, method, args);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  interface CacheInvalidator {
+
+    void invalidate(String runId) throws Exception;
+  }
+
+  private static final class DecisionTask {
+
+    private final String runId;
+    private final long deadlineNanos;
+
+    private DecisionTask(String runId, long deadlineNanos) {
+      this.runId = runId;
+      this.deadlineNanos = deadlineNanos;
+    }
+  }
+
+  private static final class CachedExecution {
+
+    private final WorkflowExecution execution;
+    private boolean processing;
+    private boolean evicting;
+    private ByteBuffer task;
+    private long lastActivityNanos;
+    private long gapsNanos;
+    private int gaps;
+
+    private CachedExecution(WorkflowExecution execution) {
+      this.execution = execution;
+    }
+
+    private void started(ByteBuffer token, long now) {
+      if (lastActivityNanos != 0) {
+        gapsNanos += now - lastActivityNanos;
+        gaps++;
+      }
+      processing = true;
+      evicting = false;
+      task = token;
+      lastActivityNanos = now;
+    }
+
+    private void responded(long now) {
+      processing = false;
+      lastActivityNanos = now;
+    }
+
+    private long meanGapNanos() {
+      return gaps == 0 ? 0 : gapsNanos / gaps;
+    }
+
+    /**
+     * Time since the last decision task, plus the usual time between its decision tasks.
+     */
+    private long score(long now) {
+      return now - lastActivityNanos + meanGapNanos();
+    }
+  }
+}
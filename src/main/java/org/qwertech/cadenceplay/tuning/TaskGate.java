@@ -0,0 +1,223 @@
+package org.qwertech.cadenceplay.tuning;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.Value;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.thrift.TException;
+
+/**
+ * Limits the pollers and the tasks in flight of one task kind and collects what the tuner decides on. Every task list, e.g. the sticky and the regular one
+ * of decisions, gets its own poller permits, so a long poll on one does not hold back polls of the other. A task is in flight from the poll that returned
+ * it until it is responded to, or until {@link #expire} gives up on it after its own timeout.
+ */
+class TaskGate {
+
+  private final Map<String, ResizableSemaphore> pollers = new ConcurrentHashMap<>();
+  private final ResizableSemaphore slots;
+  private final Map<ByteBuffer, InFlightTask> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder polls = new LongAdder();
+  private final LongAdder emptyPolls = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+  private final Recorder scheduleToStart = new Recorder(TimeUnit.HOURS.toMillis(1), 2);
+
+  private int pollerLimit;
+
+  TaskGate(int pollers, int concurrency) {
+    this.pollerLimit = pollers;
+    this.slots = new ResizableSemaphore(concurrency);
+  }
+
+  /**
+   * Runs the poll once a task slot and a poller permit of the task list are free. A response without a task token gives the slot back.
+   */
+  <T> T poll(String taskList, Poll<T> call, Function<T, PolledTask> describe) throws TException {
+    if (!slots.tryAcquire()) {
+      throttled.increment();
+      acquire(slots);
+    }
+    boolean task = false;
+    try {
+      T response;
+      ResizableSemaphore taskListPollers = pollersOf(taskList);
+      acquire(taskListPollers);
+      try {
+        response = call.poll();
+      } finally {
+        taskListPollers.release();
+      }
+      polls.increment();
+      PolledTask polled = response == null ? null : describe.apply(response);
+      if (polled == null || polled.getToken() == null) {
+        emptyPolls.increment();
+        return response;
+      }
+      inFlight.put(ByteBuffer.wrap(polled.getToken()), new InFlightTask(System.nanoTime(), polled));
+      peakInFlight.accumulate(inFlight.size());
+      long scheduleToStartNanos = polled.getScheduleToStartNanos();
+      if (scheduleToStartNanos >= 0) {
+        scheduleToStart.recordValue(Math.min(TimeUnit.NANOSECONDS.toMillis(scheduleToStartNanos), TimeUnit.HOURS.toMillis(1)));
+      }
+      task = true;
+      return response;
+    } finally {
+      if (!task) {
+        slots.release();
+      }
+    }
+  }
+
+  void completed(byte[] token) {
+    if (token != null && inFlight.remove(ByteBuffer.wrap(token)) != null) {
+      slots.release();
+    }
+  }
+
+  /**
+   * A heartbeat moves the deadline of an activity with a heartbeat timeout, the start-to-close timeout still applies.
+   */
+  void heartbeat(byte[] token) {
+    InFlightTask task = token == null ? null : inFlight.get(ByteBuffer.wrap(token));
+    if (task != null) {
+      task.heartbeat(System.nanoTime());
+    }
+  }
+
+  /**
+   * Frees the slots of tasks that were not responded to within their timeout plus {@code grace}. The server has timed them out by then, so the worker
+   * gave up on them or will be refused when it responds.
+   *
+   * @return number of expired tasks
+   */
+  int expire(long grace, TimeUnit unit) {
+    long now = System.nanoTime();
+    long graceNanos = unit.toNanos(grace);
+    int expired = 0;
+    for (Iterator<InFlightTask> tasks = inFlight.values().iterator(); tasks.hasNext(); ) {
+      if (tasks.next().getDeadlineNanos() + graceNanos - now < 0) {
+        tasks.remove();
+        slots.release();
+        expired++;
+      }
+    }
+    return expired;
+  }
+
+  synchronized int getPollers() {
+    return pollerLimit;
+  }
+
+  synchronized void setPollers(int limit) {
+    pollerLimit = limit;
+    pollers.values().forEach(taskListPollers -> taskListPollers.setLimit(limit));
+  }
+
+  int getConcurrency() {
+    return slots.getLimit();
+  }
+
+  void setConcurrency(int limit) {
+    slots.setLimit(limit);
+  }
+
+  /**
+   * Statistics since the previous window.
+   */
+  Window window() {
+    Histogram latencies = scheduleToStart.getIntervalHistogram();
+    return new Window(polls.sumThenReset(), emptyPolls.sumThenReset(), throttled.sumThenReset(),
+        Math.max((int) peakInFlight.getThenReset(), inFlight.size()), inFlight.size(),
+        latencies.getTotalCount() == 0 ? 0 : latencies.getValueAtPercentile(90));
+  }
+
+  private ResizableSemaphore pollersOf(String taskList) {
+    ResizableSemaphore taskListPollers = pollers.get(taskList);
+    if (taskListPollers != null) {
+      return taskListPollers;
+    }
+    synchronized (this) {
+      return pollers.computeIfAbsent(taskList, name -> new ResizableSemaphore(pollerLimit));
+    }
+  }
+
+  private static void acquire(Semaphore semaphore) throws TException {
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TException("Interrupted while waiting to poll", e);
+    }
+  }
+
+  @Value
+  static class Window {
+
+    long polls;
+    long emptyPolls;
+    long throttled;
+    int peakInFlight;
+    int inFlight;
+    long scheduleToStartP90Millis;
+
+    double getPollSuccessRate() {
+      return polls == 0 ? 0 : (double) (polls - emptyPolls) / polls;
+    }
+  }
+
+  /**
+   * What the gate needs to know about a polled task.
+   */
+  @Value
+  static class PolledTask {
+
+    /**
+     * Null for an empty poll.
+     */
+    byte[] token;
+    /**
+     * Negative when the response has no timestamps.
+     */
+    long scheduleToStartNanos;
+    long startToCloseTimeoutNanos;
+    /**
+     * Zero when the task doesn't heartbeat.
+     */
+    long heartbeatTimeoutNanos;
+  }
+
+  private static class InFlightTask {
+
+    private final long closeDeadlineNanos;
+    private final long heartbeatTimeoutNanos;
+    private volatile long heartbeatDeadlineNanos;
+
+    InFlightTask(long startedNanos, PolledTask task) {
+      this.closeDeadlineNanos = startedNanos + task.getStartToCloseTimeoutNanos();
+      this.heartbeatTimeoutNanos = task.getHeartbeatTimeoutNanos();
+      heartbeat(startedNanos);
+    }
+
+    void heartbeat(long nowNanos) {
+      heartbeatDeadlineNanos = heartbeatTimeoutNanos > 0 ? nowNanos + heartbeatTimeoutNanos : closeDeadlineNanos;
+    }
+
+    long getDeadlineNanos() {
+      long heartbeatDeadline = heartbeatDeadlineNanos;
+      return heartbeatDeadline - closeDeadlineNanos < 0 ? heartbeatDeadline : closeDeadlineNanos;
+    }
+  }
+
+  interface Poll<T> {
+
+    T poll() throws TException;
+  }
+}
@@ -0,0 +1,26 @@
+package org.qwertech.cadenceplay.tuning;
+
+import lombok.Value;
+
+/**
+ * Range the {@link WorkerAutoTuner} may move the active pollers and the concurrently executed tasks of one task kind in. The worker itself is configured
+ * with the upper bounds.
+ */
+@Value
+public class TuningBounds {
+
+  int minPollers;
+  int maxPollers;
+  int minConcurrency;
+  int maxConcurrency;
+
+  public TuningBounds(int minPollers, int maxPollers, int minConcurrency, int maxConcurrency) {
+    if (minPollers < 1 || minPollers > maxPollers || minConcurrency < 1 || minConcurrency > maxConcurrency) {
+      throw new IllegalArgumentException("Invalid bounds: pollers " + minPollers + ".." + maxPollers + ", concurrency " + minConcurrency + ".." + maxConcurrency);
+    }
+    this.minPollers = minPollers;
+    this.maxPollers = maxPollers;
+    this.minConcurrency = minConcurrency;
+    this.maxConcurrency = maxConcurrency;
+  }
+}
@@ -0,0 +1,323 @@
+package org.qwertech.cadenceplay.tuning;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.uber.cadence.EventType;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.PollForActivityTaskRequest;
+import com.uber.cadence.PollForActivityTaskResponse;
+import com.uber.cadence.PollForDecisionTaskRequest;
+import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.RecordActivityTaskHeartbeatRequest;
+import com.uber.cadence.RespondActivityTaskCanceledRequest;
+import com.uber.cadence.RespondActivityTaskCompletedRequest;
+import com.uber.cadence.RespondActivityTaskFailedRequest;
+import com.uber.cadence.RespondDecisionTaskCompletedRequest;
+import com.uber.cadence.RespondDecisionTaskFailedRequest;
+import com.uber.cadence.RespondQueryTaskCompletedRequest;
+import com.uber.cadence.TaskList;
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.cadence.internal.worker.PollerOptions;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import com.uber.cadence.worker.WorkerOptions;
+import com.uber.m3.tally.Scope;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.qwertech.cadenceplay.tuning.Adjustment.Knob;
+import org.qwertech.cadenceplay.tuning.Adjustment.TaskKind;
+import org.qwertech.cadenceplay.tuning.TaskGate.PolledTask;
+import org.qwertech.cadenceplay.tuning.TaskGate.Window;
+
+/**
+ * Tunes the pollers and the concurrently executed tasks of a worker within {@link TuningBounds}. The client fixes poller threads and executor sizes when a
+ * worker is created, so the worker gets the upper bounds through {@link #workerOptions()} and {@link #stickyPollerOptions()}, and talks to the server
+ * through {@link #getService()}, which lets only the tuned number of pollers poll and only the tuned number of tasks be in flight.
+ * <p>
+ * Every interval, per task kind:
+ * <ul>
+ * <li>schedule-to-start p90 over the target while task slots ran out raises concurrency,</li>
+ * <li>schedule-to-start p90 over the target with free slots adds a poller,</li>
+ * <li>a poll success rate under {@value #LOW_POLL_SUCCESS_RATE} removes a poller,</li>
+ * <li>peak tasks in flight under {@value #IDLE_UTILIZATION} of the limit lowers concurrency.</li>
+ * </ul>
+ * A kind that was not polled in the interval is left as is.
+ * <p>
+ * Adjustments are logged, kept in {@link #getAdjustments()} and counted in {@code autotune-adjustments}; the current values go to {@code autotune-*} gauges.
+ */
+@Slf4j
+public class WorkerAutoTuner implements AutoCloseable {
+
+  static final double LOW_POLL_SUCCESS_RATE = 0.2;
+  static final double IDLE_UTILIZATION = 0.5;
+  static final long EXPIRY_GRACE_SECONDS = 30;
+
+  private static final int MAX_ADJUSTMENTS = 1000;
+  private static final long DEFAULT_DECISION_TIMEOUT_SECONDS = 60;
+
+  private final IWorkflowService delegate;
+  private final IWorkflowService service;
+  private final TuningBounds decisionBounds;
+  private final TuningBounds activityBounds;
+  private final TaskGate decisions;
+  private final TaskGate activities;
+  private final long targetScheduleToStartMillis;
+  private final Scope metrics;
+  private final Deque<Adjustment> adjustments = new ArrayDeque<>();
+  private ScheduledExecutorService scheduler;
+
+  public WorkerAutoTuner(IWorkflowService delegate, TuningBounds decisionBounds, TuningBounds activityBounds, Duration targetScheduleToStart) {
+    this(delegate, decisionBounds, activityBounds, targetScheduleToStart, NoopScope.getInstance());
+  }
+
+  /**
+   * Starts with the minimum pollers and the maximum concurrency, which is what an untuned worker runs with.
+   */
+  public WorkerAutoTuner(IWorkflowService delegate, TuningBounds decisionBounds, TuningBounds activityBounds, Duration targetScheduleToStart, Scope metrics) {
+    this.delegate = delegate;
+    this.decisionBounds = decisionBounds;
+    this.activityBounds = activityBounds;
+    this.decisions = new TaskGate(decisionBounds.getMinPollers(), decisionBounds.getMaxConcurrency());
+    this.activities = new TaskGate(activityBounds.getMinPollers(), activityBounds.getMaxConcurrency());
+    this.targetScheduleToStartMillis = targetScheduleToStart.toMillis();
+    this.metrics = metrics;
+    this.service = ServiceProxies.proxy(this::invoke);
+  }
+
+  /**
+   * Service to create the {@link com.uber.cadence.worker.Worker.Factory} with.
+   */
+  public IWorkflowService getService() {
+    return service;
+  }
+
+  public WorkerOptions workerOptions() {
+    return new WorkerOptions.Builder()
+        .setWorkflowPollerOptions(pollerOptions(decisionBounds))
+        .setActivityPollerOptions(pollerOptions(activityBounds))
+        .setMaxConcurrentWorkflowExecutionSize(decisionBounds.getMaxConcurrency())
+        .setMaxConcurrentActivityExecutionSize(activityBounds.getMaxConcurrency())
+        .build();
+  }
+
+  /**
+   * The sticky task list gets as many pollers as the regular decision task list, limited separately.
+   */
+  public PollerOptions stickyPollerOptions() {
+    return pollerOptions(decisionBounds);
+  }
+
+  public synchronized void start(Duration interval) {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("worker-auto-tuner").setDaemon(true).build());
+      scheduler.scheduleWithFixedDelay(this::tune, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public int getPollers(TaskKind kind) {
+    return gate(kind).getPollers();
+  }
+
+  public int getConcurrency(TaskKind kind) {
+    return gate(kind).getConcurrency();
+  }
+
+  /**
+   * Latest adjustments, oldest first.
+   */
+  public synchronized List<Adjustment> getAdjustments() {
+    return new ArrayList<>(adjustments);
+  }
+
+  /**
+   * One tuning round over the statistics collected since the previous one.
+   */
+  void tune() {
+    try {
+      tune(TaskKind.DECISION, decisionBounds);
+      tune(TaskKind.ACTIVITY, activityBounds);
+    } catch (RuntimeException e) {
+      log.error("[tune] tuning round failed", e);
+    }
+  }
+
+  private void tune(TaskKind kind, TuningBounds bounds) {
+    TaskGate gate = gate(kind);
+    int expired = gate.expire(EXPIRY_GRACE_SECONDS, TimeUnit.SECONDS);
+    if (expired > 0) {
+      log.warn("[tune] {} {} tasks were not responded to within their timeout, their slots are freed", expired, kind);
+    }
+    Window window = gate.window();
+    int pollers = gate.getPollers();
+    int concurrency = gate.getConcurrency();
+    boolean saturated = window.getThrottled() > 0 || window.getPeakInFlight() >= concurrency;
+    boolean slow = window.getScheduleToStartP90Millis() > targetScheduleToStartMillis;
+
+    if (slow && saturated) {
+      adjust(kind, Knob.CONCURRENCY, concurrency, Math.min(bounds.getMaxConcurrency(), concurrency + step(concurrency)),
+          "schedule-to-start p90 " + window.getScheduleToStartP90Millis() + "ms with all " + concurrency + " slots busy");
+    } else if (slow) {
+      adjust(kind, Knob.POLLERS, pollers, Math.min(bounds.getMaxPollers(), pollers + 1),
+          "schedule-to-start p90 " + window.getScheduleToStartP90Millis() + "ms with free slots");
+    } else if (window.getPolls() > 0 && window.getPollSuccessRate() < LOW_POLL_SUCCESS_RATE) {
+      adjust(kind, Knob.POLLERS, pollers, Math.max(bounds.getMinPollers(), pollers - 1),
+          String.format(Locale.ROOT, "poll success rate %.2f", window.getPollSuccessRate()));
+    }
+    if (!slow && window.getPolls() > 0 && window.getPeakInFlight() < concurrency * IDLE_UTILIZATION) {
+      adjust(kind, Knob.CONCURRENCY, concurrency,
+          Math.max(bounds.getMinConcurrency(), Math.max(window.getPeakInFlight() * 2, concurrency - step(concurrency))),
+          "peak " + window.getPeakInFlight() + " of " + concurrency + " slots in use");
+    }
+    report(kind, window, gate);
+  }
+
+  private static int step(int value) {
+    return Math.max(1, value / 4);
+  }
+
+  private void adjust(TaskKind kind, Knob knob, int from, int to, String reason) {
+    if (from == to) {
+      return;
+    }
+    if (knob == Knob.POLLERS) {
+      gate(kind).setPollers(to);
+    } else {
+      gate(kind).setConcurrency(to);
+    }
+    Adjustment adjustment = new Adjustment(Instant.now(), kind, knob, from, to, reason);
+    synchronized (this) {
+      if (adjustments.size() == MAX_ADJUSTMENTS) {
+        adjustments.removeFirst();
+      }
+      adjustments.addLast(adjustment);
+    }
+    metrics.tagged(ImmutableMap.of("task-kind", tag(kind), "knob", tag(knob), "direction", to > from ? "up" : "down"))
+        .counter("autotune-adjustments").inc(1);
+    log.info("[adjust] {} {} {} -> {}: {}", kind, knob, from, to, reason);
+  }
+
+  private void report(TaskKind kind, Window window, TaskGate gate) {
+    Scope scope = metrics.tagged(ImmutableMap.of("task-kind", tag(kind)));
+    scope.gauge("autotune-pollers").update(gate.getPollers());
+    scope.gauge("autotune-concurrency").update(gate.getConcurrency());
+    scope.gauge("autotune-in-flight").update(window.getInFlight());
+    scope.gauge("autotune-poll-success-rate").update(window.getPollSuccessRate());
+    scope.gauge("autotune-schedule-to-start-p90-ms").update(window.getScheduleToStartP90Millis());
+    log.debug("[report] {} {}", kind, window);
+  }
+
+  private static String tag(Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+
+  private TaskGate gate(TaskKind kind) {
+    return kind == TaskKind.DECISION ? decisions : activities;
+  }
+
+  private Object invoke(Method method, Object[] args) throws TException {
+    switch (method.getName()) {
+      case "PollForDecisionTask":
+        return decisions.poll(taskListName(((PollForDecisionTaskRequest) args[0]).getTaskList()), () -> (PollForDecisionTaskResponse) call(method, args),
+            WorkerAutoTuner::describe);
+      case "PollForActivityTask":
+        return activities.poll(taskListName(((PollForActivityTaskRequest) args[0]).getTaskList()), () -> (PollForActivityTaskResponse) call(method, args),
+            WorkerAutoTuner::describe);
+      case "RecordActivityTaskHeartbeat":
+        activities.heartbeat(((RecordActivityTaskHeartbeatRequest) args[0]).getTaskToken());
+        return call(method, args);
+      case "RespondDecisionTaskCompleted":
+      case "RespondDecisionTaskFailed":
+      case "RespondQueryTaskCompleted":
+        return respond(decisions, method, args);
+      case "RespondActivityTaskCompleted":
+      case "RespondActivityTaskFailed":
+      case "RespondActivityTaskCanceled":
+        return respond(activities, method, args);
+      default:
+        return call(method, args);
+    }
+  }
+
+  private Object respond(TaskGate gate, Method method, Object[] args) throws TException {
+    try {
+      return call(method, args);
+    } finally {
+      gate.completed(token(args[0]));
+    }
+  }
+
+  private static byte[] token(Object request) {
+    if (request instanceof RespondDecisionTaskCompletedRequest) {
+      return ((RespondDecisionTaskCompletedRequest) request).getTaskToken();
+    } else if (request instanceof RespondDecisionTaskFailedRequest) {
+      return ((RespondDecisionTaskFailedRequest) request).getTaskToken();
+    } else if (request instanceof RespondQueryTaskCompletedRequest) {
+      return ((RespondQueryTaskCompletedRequest) request).getTaskToken();
+    } else if (request instanceof RespondActivityTaskCompletedRequest) {
+      return ((RespondActivityTaskCompletedRequest) request).getTaskToken();
+    } else if (request instanceof RespondActivityTaskFailedRequest) {
+      return ((RespondActivityTaskFailedRequest) request).getTaskToken();
+    } else if (request instanceof RespondActivityTaskCanceledRequest) {
+      return ((RespondActivityTaskCanceledRequest) request).getTaskToken();
+    }
+    return null;
+  }
+
+  private Object call(Method method, Object[] args) throws TException {
+    return ServiceProxies.call(delegate, method, args);
+  }
+
+  private static String taskListName(TaskList taskList) {
+    return taskList == null || taskList.getName() == null ? "" : taskList.getName();
+  }
+
+  private static PolledTask describe(PollForDecisionTaskResponse response) {
+    long scheduleToStart = response.isSetScheduledTimestamp() && response.isSetStartedTimestamp()
+        ? response.getStartedTimestamp() - response.getScheduledTimestamp() : -1;
+    return new PolledTask(response.getTaskToken(), scheduleToStart, TimeUnit.SECONDS.toNanos(decisionTimeoutSeconds(response)), 0);
+  }
+
+  /**
+   * Timeout of the latest scheduled decision task in the history page, query tasks have none.
+   */
+  static long decisionTimeoutSeconds(PollForDecisionTaskResponse response) {
+    if (response.isSetHistory() && response.getHistory().isSetEvents()) {
+      List<HistoryEvent> events = response.getHistory().getEvents();
+      for (int i = events.size() - 1; i >= 0; i--) {
+        HistoryEvent event = events.get(i);
+        if (event.getEventType() == EventType.DecisionTaskScheduled && event.isSetDecisionTaskScheduledEventAttributes()) {
+          return event.getDecisionTaskScheduledEventAttributes().getStartToCloseTimeoutSeconds();
+        }
+      }
+    }
+    return DEFAULT_DECISION_TIMEOUT_SECONDS;
+  }
+
+  private static PolledTask describe(PollForActivityTaskResponse response) {
+    long scheduleToStart = response.isSetScheduledTimestampOfThisAttempt() && response.isSetStartedTimestamp()
+        ? response.getStartedTimestamp() - response.getScheduledTimestampOfThisAttempt() : -1;
+    return new PolledTask(response.getTaskToken(), scheduleToStart, TimeUnit.SECONDS.toNanos(response.getStartToCloseTimeoutSeconds()),
+        response.isSetHeartbeatTimeoutSeconds() ? TimeUnit.SECONDS.toNanos(response.getHeartbeatTimeoutSeconds()) : 0);
+  }
+
+  private static PollerOptions pollerOptions(TuningBounds bounds) {
+    return new PollerOptions.Builder().setPollThreadCount(bounds.getMaxPollers()).build();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
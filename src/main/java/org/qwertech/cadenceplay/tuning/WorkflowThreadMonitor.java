@@ -0,0 +1,157 @@
+package org.qwertech.cadenceplay.tuning;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.m3.tally.Scope;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches the threads running workflow code. Each cached execution keeps its workflow threads while it waits for the next decision task, so with a small
+ * {@code maxWorkflowThreadCount} a few waiting workflows leave no thread for new decision tasks. A scan tells apart threads parked by the Workflow API, which
+ * eviction can free, from threads blocked by other APIs such as {@code Thread.sleep}, which hold the thread for real and break determinism; the latter are
+ * logged once per code location.
+ */
+@Slf4j
+public class WorkflowThreadMonitor implements AutoCloseable {
+
+  static final String WORKFLOW_THREAD_CLASS = "com.uber.cadence.internal.sync.WorkflowThreadImpl";
+  private static final String CADENCE_PACKAGE = "com.uber.cadence.";
+
+  private final int maxWorkflowThreadCount;
+  private final Scope metrics;
+  private final Set<String> reportedLocations = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService scheduler;
+
+  public WorkflowThreadMonitor(int maxWorkflowThreadCount) {
+    this(maxWorkflowThreadCount, NoopScope.getInstance());
+  }
+
+  public WorkflowThreadMonitor(int maxWorkflowThreadCount, Scope metrics) {
+    this.maxWorkflowThreadCount = maxWorkflowThreadCount;
+    this.metrics = metrics;
+  }
+
+  public synchronized void start(Duration interval) {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("workflow-thread-monitor").setDaemon(true).build());
+      scheduler.scheduleWithFixedDelay(this::report, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public Snapshot scan() {
+    return scan(Thread.getAllStackTraces());
+  }
+
+  Snapshot scan(Map<Thread, StackTraceElement[]> threads) {
+    int parked = 0;
+    int running = 0;
+    List<BlockingThread> blocking = new ArrayList<>();
+    for (Map.Entry<Thread, StackTraceElement[]> thread : threads.entrySet()) {
+      StackTraceElement[] stack = thread.getValue();
+      if (!isWorkflowThread(stack)) {
+        continue;
+      }
+      Thread.State state = thread.getKey().getState();
+      if (state == Thread.State.RUNNABLE || stack.length == 0) {
+        running++;
+        continue;
+      }
+      StackTraceElement caller = firstNonJdkFrame(stack);
+      if (caller == null || caller.getClassName().startsWith(CADENCE_PACKAGE)) {
+        parked++;
+      } else {
+        blocking.add(new BlockingThread(thread.getKey().getName(), state, stack[0].toString(), caller.toString()));
+      }
+    }
+    return new Snapshot(maxWorkflowThreadCount, parked, running, blocking);
+  }
+
+  private void report() {
+    try {
+      Snapshot snapshot = scan();
+      metrics.gauge("workflow-threads-parked").update(snapshot.getParked());
+      metrics.gauge("workflow-threads-blocking").update(snapshot.getBlocking().size());
+      metrics.gauge("workflow-threads-running").update(snapshot.getRunning());
+      for (BlockingThread thread : snapshot.getBlocking()) {
+        if (reportedLocations.add(thread.getLocation())) {
+          log.warn("[report] workflow thread {} is {} in {} called from {}, use the Workflow API instead", thread.getThreadName(), thread.getState(),
+              thread.getBlockingCall(), thread.getLocation());
+        }
+      }
+      if (snapshot.isExhausted()) {
+        log.warn("[report] all {} workflow threads are taken: {} parked, {} blocking, {} running", maxWorkflowThreadCount, snapshot.getParked(),
+            snapshot.getBlocking().size(), snapshot.getRunning());
+      }
+    } catch (RuntimeException e) {
+      log.error("[report] scan failed", e);
+    }
+  }
+
+  private static boolean isWorkflowThread(StackTraceElement[] stack) {
+    for (int i = stack.length - 1; i >= 0; i--) {
+      if (stack[i].getClassName().startsWith(WORKFLOW_THREAD_CLASS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static StackTraceElement firstNonJdkFrame(StackTraceElement[] stack) {
+    for (StackTraceElement frame : stack) {
+      String className = frame.getClassName();
+      if (!className.startsWith("java.") && !className.startsWith("jdk.") && !className.startsWith("sun.")) {
+        return frame;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Value
+  public static class Snapshot {
+
+    int maxWorkflowThreadCount;
+    /**
+     * Waiting in the Workflow API, e.g. {@code Workflow.await}; eviction from the sticky cache frees them.
+     */
+    int parked;
+    int running;
+    List<BlockingThread> blocking;
+
+    public int getTaken() {
+      return parked + running + blocking.size();
+    }
+
+    public boolean isExhausted() {
+      return getTaken() >= maxWorkflowThreadCount;
+    }
+  }
+
+  @Value
+  public static class BlockingThread {
+
+    String threadName;
+    Thread.State state;
+    String blockingCall;
+    /**
+     * First frame outside the JDK, the workflow code making the call.
+     */
+    String location;
+  }
+}
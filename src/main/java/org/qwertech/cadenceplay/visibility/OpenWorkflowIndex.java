@@ -0,0 +1,265 @@
+package org.qwertech.cadenceplay.visibility;
+
+import com.uber.cadence.ListClosedWorkflowExecutionsRequest;
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.StartTimeFilter;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowTypeFilter;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local index of the open executions of a domain, persisted to a compact binary file and kept up to date incrementally.
+ * <p>
+ * The first {@link #refresh()} lists everything with {@link ParallelOpenWorkflowLister}. Later ones only list executions started after the high-water mark,
+ * the newest start time seen, and executions closed after the close checkpoint, the newest close time seen. The close checkpoint starts at the oldest start
+ * time of the first listing, as no indexed execution can have closed before it started. Both are server timestamps, and both listings reach back by
+ * {@code overlap} to pick up visibility records written late. Cadence applies the start time filter of closed listings to close time.
+ * <p>
+ * Lookups and counts are served from memory and never touch the service.
+ */
+@Slf4j
+public class OpenWorkflowIndex {
+
+  public static final long DEFAULT_OVERLAP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private static final int MAGIC = 0x4f574931;
+  private static final int PAGE_SIZE = 1_000;
+  private static final int PARALLELISM = 8;
+
+  private final IWorkflowService service;
+  private final String domain;
+  private final String workflowType;
+  private final Path file;
+  private final long overlapNanos;
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  @Getter
+  private volatile long highWaterMark;
+  @Getter
+  private volatile long closeCheckpoint;
+  private volatile boolean synced;
+
+  /**
+   * Loads the index from {@code file} if it was saved before for the same domain and type.
+   *
+   * @param workflowType null indexes executions of all types
+   */
+  public OpenWorkflowIndex(IWorkflowService service, String domain, String workflowType, Path file) {
+    this(service, domain, workflowType, file, DEFAULT_OVERLAP_NANOS);
+  }
+
+  public OpenWorkflowIndex(IWorkflowService service, String domain, String workflowType, Path file, long overlapNanos) {
+    this.service = service;
+    this.domain = domain;
+    this.workflowType = workflowType;
+    this.file = file;
+    this.overlapNanos = overlapNanos;
+    if (Files.exists(file)) {
+      load();
+    }
+  }
+
+  /**
+   * Brings the index up to date with the service and saves it.
+   */
+  public synchronized Refresh refresh() {
+    long started = System.currentTimeMillis();
+    int added = 0;
+    int removed = 0;
+    if (!synced) {
+      // closures that happen while the full listing runs are picked up by the next refresh
+      long oldestStart = Long.MAX_VALUE;
+      for (WorkflowExecutionInfo execution : new ParallelOpenWorkflowLister(service, domain, PARALLELISM, PAGE_SIZE).list(workflowType)) {
+        added += add(execution);
+        oldestStart = Math.min(oldestStart, execution.getStartTime());
+      }
+      // an empty first listing has nothing that could close, the next refresh lists closures from the start of retention once
+      closeCheckpoint = oldestStart == Long.MAX_VALUE ? 0 : oldestStart;
+      synced = true;
+    } else {
+      try (Stream<WorkflowExecutionInfo> opened = WorkflowExecutions.open(service, openRequest(highWaterMark - overlapNanos))) {
+        added = opened.mapToInt(this::add).sum();
+      }
+      try (Stream<WorkflowExecutionInfo> closed = WorkflowExecutions.closed(service, closedRequest(closeCheckpoint - overlapNanos))) {
+        removed = closed.mapToInt(this::remove).sum();
+      }
+    }
+    save();
+    Refresh refresh = new Refresh(added, removed, entries.size(), System.currentTimeMillis() - started);
+    log.info("[refresh] {}", refresh);
+    return refresh;
+  }
+
+  public boolean contains(String workflowId) {
+    return entries.containsKey(workflowId);
+  }
+
+  /**
+   * @return null if the workflow is not open as of the last refresh
+   */
+  public Entry get(String workflowId) {
+    return entries.get(workflowId);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public Collection<Entry> entries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+
+  public Map<String, Long> countByType() {
+    return entries.values().stream().collect(Collectors.groupingBy(Entry::getWorkflowType, Collectors.counting()));
+  }
+
+  private int add(WorkflowExecutionInfo execution) {
+    highWaterMark = Math.max(highWaterMark, execution.getStartTime());
+    Entry entry = new Entry(execution.getExecution().getWorkflowId(), execution.getExecution().getRunId(), execution.getType().getName(),
+        execution.getStartTime());
+    return entry.equals(entries.put(entry.getWorkflowId(), entry)) ? 0 : 1;
+  }
+
+  private int remove(WorkflowExecutionInfo execution) {
+    closeCheckpoint = Math.max(closeCheckpoint, execution.getCloseTime());
+    String workflowId = execution.getExecution().getWorkflowId();
+    Entry entry = entries.get(workflowId);
+    // a closed run doesn't remove a newer run of the same workflow id
+    if (entry != null && entry.getRunId().equals(execution.getExecution().getRunId()) && entries.remove(workflowId, entry)) {
+      return 1;
+    }
+    return 0;
+  }
+
+  private ListOpenWorkflowExecutionsRequest openRequest(long earliest) {
+    return new ListOpenWorkflowExecutionsRequest()
+        .setDomain(domain)
+        .setMaximumPageSize(PAGE_SIZE)
+        .setTypeFilter(typeFilter())
+        .setStartTimeFilter(new StartTimeFilter().setEarliestTime(Math.max(earliest, 0)).setLatestTime(Long.MAX_VALUE));
+  }
+
+  private ListClosedWorkflowExecutionsRequest closedRequest(long earliest) {
+    return new ListClosedWorkflowExecutionsRequest()
+        .setDomain(domain)
+        .setMaximumPageSize(PAGE_SIZE)
+        .setTypeFilter(typeFilter())
+        .setStartTimeFilter(new StartTimeFilter().setEarliestTime(Math.max(earliest, 0)).setLatestTime(Long.MAX_VALUE));
+  }
+
+  private WorkflowTypeFilter typeFilter() {
+    return workflowType == null ? null : new WorkflowTypeFilter().setName(workflowType);
+  }
+
+  /**
+   * Header, then the table of workflow type names, then the entries referring to types by their position in the table.
+   */
+  @SneakyThrows
+  private void save() {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeUTF(domain);
+        out.writeUTF(Objects.toString(workflowType, ""));
+        out.writeLong(highWaterMark);
+        out.writeLong(closeCheckpoint);
+
+        Map<String, Integer> types = new HashMap<>();
+        List<Entry> snapshot = new ArrayList<>(entries.values());
+        snapshot.forEach(entry -> types.putIfAbsent(entry.getWorkflowType(), types.size()));
+        String[] typeNames = new String[types.size()];
+        types.forEach((name, index) -> typeNames[index] = name);
+        out.writeInt(typeNames.length);
+        for (String typeName : typeNames) {
+          out.writeUTF(typeName);
+        }
+
+        out.writeInt(snapshot.size());
+        for (Entry entry : snapshot) {
+          out.writeUTF(entry.getWorkflowId());
+          out.writeUTF(entry.getRunId());
+          out.writeInt(types.get(entry.getWorkflowType()));
+          out.writeLong(entry.getStartTime());
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  @SneakyThrows
+  private void load() {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not an open workflow index");
+      }
+      String savedDomain = in.readUTF();
+      String savedType = in.readUTF();
+      if (!domain.equals(savedDomain) || !Objects.toString(workflowType, "").equals(savedType)) {
+        log.warn("[load] {} indexes domain {} type '{}', rebuilding it", file, savedDomain, savedType);
+        return;
+      }
+      long savedHighWaterMark = in.readLong();
+      long savedCloseCheckpoint = in.readLong();
+
+      String[] typeNames = new String[in.readInt()];
+      for (int i = 0; i < typeNames.length; i++) {
+        typeNames[i] = in.readUTF();
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        Entry entry = new Entry(in.readUTF(), in.readUTF(), typeNames[in.readInt()], in.readLong());
+        entries.put(entry.getWorkflowId(), entry);
+      }
+      highWaterMark = savedHighWaterMark;
+      closeCheckpoint = savedCloseCheckpoint;
+      synced = true;
+    }
+  }
+
+  @Value
+  public static class Entry {
+
+    String workflowId;
+    String runId;
+    String workflowType;
+    long startTime;
+  }
+
+  @Value
+  public static class Refresh {
+
+    int added;
+    int removed;
+    int size;
+    long millis;
+  }
+}
@@ -0,0 +1,198 @@
+package org.qwertech.cadenceplay.visibility;
+
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.ListOpenWorkflowExecutionsResponse;
+import com.uber.cadence.StartTimeFilter;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowTypeFilter;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lists open workflow executions of one type by paging several start time slices concurrently.
+ * <p>
+ * A probe first finds the start time of the newest and, approximately, the oldest open execution, and the range between them is cut into equal slices. Data
+ * is rarely spread evenly, so a slice that still has pages left while some worker is idle splits its remaining range in half and hands the older half over.
+ * Slices touch at the boundaries, so results are deduplicated by run id.
+ */
+@Slf4j
+public class ParallelOpenWorkflowLister {
+
+  public static final int DEFAULT_PAGE_SIZE = 1_000;
+
+  /**
+   * Slices narrower than this are never split, executions started within one millisecond are paged serially.
+   */
+  private static final long MIN_SLICE_NANOS = 1_000_000;
+
+  private final IWorkflowService service;
+  private final String domain;
+  private final int parallelism;
+  private final int pageSize;
+
+  public ParallelOpenWorkflowLister(IWorkflowService service, String domain, int parallelism) {
+    this(service, domain, parallelism, DEFAULT_PAGE_SIZE);
+  }
+
+  public ParallelOpenWorkflowLister(IWorkflowService service, String domain, int parallelism, int pageSize) {
+    this.service = service;
+    this.domain = domain;
+    this.parallelism = parallelism;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * @param workflowType null lists executions of all types
+   */
+  public Collection<WorkflowExecutionInfo> list(String workflowType) {
+    long started = System.currentTimeMillis();
+    Long newest = newestStartTime(workflowType, 0, Long.MAX_VALUE);
+    if (newest == null) {
+      return new ArrayList<>();
+    }
+    long oldest = oldestStartTime(workflowType, newest);
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      Listing listing = new Listing(workflowType, executor);
+      long width = Math.max((newest - oldest) / parallelism + 1, MIN_SLICE_NANOS);
+      // the oldest slice is open-ended, the probe may have stopped short of the very first execution
+      for (long latest = newest; ; latest -= width) {
+        long earliest = latest - width + 1;
+        if (earliest <= oldest) {
+          listing.fork(0, latest);
+          break;
+        }
+        listing.fork(earliest, latest);
+      }
+      listing.release();
+      listing.done.join();
+      log.info("[list] {} open {} executions in {} pages, {} slices ({} adaptive splits) in {} ms", listing.results.size(), workflowType,
+          listing.pages.sum(), listing.slices.sum(), listing.splits.sum(), System.currentTimeMillis() - started);
+      return listing.results.values();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Start time of the newest open execution in the range, or null if there is none. Costs one single-item page.
+   */
+  private Long newestStartTime(String workflowType, long earliest, long latest) {
+    List<WorkflowExecutionInfo> executions = page(request(workflowType, earliest, latest).setMaximumPageSize(1)).getExecutions();
+    return executions == null || executions.isEmpty() ? null : executions.get(0).getStartTime();
+  }
+
+  /**
+   * Bisects for the oldest start time, only as precisely as slicing needs it.
+   */
+  private long oldestStartTime(String workflowType, long newest) {
+    long low = 0;
+    long high = newest;
+    while (high - low > Math.max((newest - high) / (parallelism * 4L), MIN_SLICE_NANOS)) {
+      long middle = low + (high - low) / 2;
+      Long found = newestStartTime(workflowType, low, middle);
+      if (found == null) {
+        low = middle + 1;
+      } else {
+        high = found;
+      }
+    }
+    return high;
+  }
+
+  private ListOpenWorkflowExecutionsRequest request(String workflowType, long earliest, long latest) {
+    return new ListOpenWorkflowExecutionsRequest()
+        .setDomain(domain)
+        .setMaximumPageSize(pageSize)
+        .setTypeFilter(workflowType == null ? null : new WorkflowTypeFilter().setName(workflowType))
+        .setStartTimeFilter(new StartTimeFilter().setEarliestTime(earliest).setLatestTime(latest));
+  }
+
+  @SneakyThrows
+  private ListOpenWorkflowExecutionsResponse page(ListOpenWorkflowExecutionsRequest request) {
+    return service.ListOpenWorkflowExecutions(request);
+  }
+
+  private final class Listing {
+
+    private final String workflowType;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, WorkflowExecutionInfo> results = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    /**
+     * Slices queued or being listed, plus one held while the initial slices are submitted.
+     */
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder slices = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+
+    private Listing(String workflowType, ExecutorService executor) {
+      this.workflowType = workflowType;
+      this.executor = executor;
+    }
+
+    private void fork(long earliest, long latest) {
+      pending.incrementAndGet();
+      slices.increment();
+      executor.execute(() -> {
+        try {
+          if (!done.isDone()) {
+            listSlice(earliest, latest);
+          }
+        } catch (Throwable e) {
+          done.completeExceptionally(e);
+        } finally {
+          release();
+        }
+      });
+    }
+
+    private void release() {
+      if (pending.decrementAndGet() == 0) {
+        done.complete(null);
+      }
+    }
+
+    private void listSlice(long earliest, long latest) {
+      ListOpenWorkflowExecutionsRequest request = request(workflowType, earliest, latest);
+      while (!done.isDone()) {
+        ListOpenWorkflowExecutionsResponse response = page(request);
+        pages.increment();
+        long oldestOnPage = latest;
+        List<WorkflowExecutionInfo> executions = response.getExecutions();
+        for (WorkflowExecutionInfo execution : executions == null ? new ArrayList<WorkflowExecutionInfo>() : executions) {
+          results.putIfAbsent(execution.getExecution().getRunId(), execution);
+          oldestOnPage = Math.min(oldestOnPage, execution.getStartTime());
+        }
+        byte[] nextPageToken = response.getNextPageToken();
+        if (nextPageToken == null || nextPageToken.length == 0) {
+          return;
+        }
+        // pages come newest first, so what is left to read is [earliest, oldestOnPage]
+        if (pending.get() < parallelism && oldestOnPage - earliest > MIN_SLICE_NANOS) {
+          long middle = earliest + (oldestOnPage - earliest) / 2;
+          splits.increment();
+          fork(earliest, middle);
+          earliest = middle + 1;
+          latest = oldestOnPage;
+          request = request(workflowType, earliest, latest);
+        } else {
+          request.setNextPageToken(nextPageToken);
+        }
+      }
+    }
+  }
+}
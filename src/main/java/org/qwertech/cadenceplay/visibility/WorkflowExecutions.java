@@ -0,0 +1,146 @@
+package org.qwertech.cadenceplay.visibility;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.uber.cadence.ListClosedWorkflowExecutionsRequest;
+import com.uber.cadence.ListClosedWorkflowExecutionsResponse;
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.ListOpenWorkflowExecutionsResponse;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Lazy streams over visibility listings. Paging follows {@code nextPageToken} until it is empty, and the next page is fetched in the background while the
+ * caller consumes the current one, so at most two pages are held in memory however many executions there are.
+ * <p>
+ * Close the stream when it is abandoned before the end, so that a pending prefetch is cancelled.
+ */
+@UtilityClass
+public class WorkflowExecutions {
+
+  private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+      .setNameFormat("visibility-prefetch-%d")
+      .setDaemon(true)
+      .build());
+
+  /**
+   * Open executions matching the request, newest first. The request is copied, its page size and filters are kept.
+   */
+  public static Stream<WorkflowExecutionInfo> open(IWorkflowService service, ListOpenWorkflowExecutionsRequest request) {
+    return stream(token -> {
+      ListOpenWorkflowExecutionsResponse response = service.ListOpenWorkflowExecutions(new ListOpenWorkflowExecutionsRequest(request).setNextPageToken(token));
+      return new Page(response.getExecutions(), response.getNextPageToken());
+    });
+  }
+
+  /**
+   * Closed executions matching the request, most recently closed first.
+   */
+  public static Stream<WorkflowExecutionInfo> closed(IWorkflowService service, ListClosedWorkflowExecutionsRequest request) {
+    return stream(token -> {
+      ListClosedWorkflowExecutionsResponse response = service
+          .ListClosedWorkflowExecutions(new ListClosedWorkflowExecutionsRequest(request).setNextPageToken(token));
+      return new Page(response.getExecutions(), response.getNextPageToken());
+    });
+  }
+
+  static Stream<WorkflowExecutionInfo> stream(PageFetcher fetcher) {
+    PagedSpliterator spliterator = new PagedSpliterator(fetcher);
+    return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+  }
+
+  @FunctionalInterface
+  interface PageFetcher {
+
+    /**
+     * @param nextPageToken null for the first page
+     */
+    Page fetch(byte[] nextPageToken) throws Exception;
+  }
+
+  static final class Page {
+
+    private final List<WorkflowExecutionInfo> executions;
+    private final byte[] nextPageToken;
+
+    Page(List<WorkflowExecutionInfo> executions, byte[] nextPageToken) {
+      this.executions = executions == null ? Collections.emptyList() : executions;
+      this.nextPageToken = nextPageToken;
+    }
+
+    private boolean isLast() {
+      return nextPageToken == null || nextPageToken.length == 0;
+    }
+  }
+
+  private static final class PagedSpliterator extends AbstractSpliterator<WorkflowExecutionInfo> {
+
+    private final PageFetcher fetcher;
+    private Iterator<WorkflowExecutionInfo> current = Collections.emptyIterator();
+    private CompletableFuture<Page> next;
+    private boolean started;
+
+    private PagedSpliterator(PageFetcher fetcher) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.fetcher = fetcher;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super WorkflowExecutionInfo> action) {
+      if (!started) {
+        started = true;
+        next = prefetch(null);
+      }
+      while (!current.hasNext()) {
+        if (next == null) {
+          return false;
+        }
+        Page page = join(next);
+        next = page.isLast() ? null : prefetch(page.nextPageToken);
+        current = page.executions.iterator();
+      }
+      action.accept(current.next());
+      return true;
+    }
+
+    private CompletableFuture<Page> prefetch(byte[] nextPageToken) {
+      return CompletableFuture.supplyAsync(() -> fetch(nextPageToken), PREFETCH);
+    }
+
+    @SneakyThrows
+    private Page fetch(byte[] nextPageToken) {
+      return fetcher.fetch(nextPageToken);
+    }
+
+    @SneakyThrows
+    private static Page join(CompletableFuture<Page> page) {
+      try {
+        return page.join();
+      } catch (CompletionException e) {
+        throw e.getCause();
+      }
+    }
+
+    private void close() {
+      started = true;
+      if (next != null) {
+        next.cancel(true);
+        next = null;
+      }
+      current = Collections.emptyIterator();
+    }
+  }
+}
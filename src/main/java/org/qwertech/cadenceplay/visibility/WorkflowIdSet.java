@@ -0,0 +1,293 @@
+package org.qwertech.cadenceplay.visibility;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Set of workflow ids that keeps ids in canonical lower-case UUID form as two {@code long}s in open-addressing arrays, 23 to 46 bytes per id depending on
+ * fill instead of well over a hundred in a {@code HashSet<String>}. Other ids go to a plain {@link HashSet}. Not thread-safe.
+ */
+public class WorkflowIdSet implements Iterable<String> {
+
+  private static final int UUID_LENGTH = 36;
+  private static final float LOAD_FACTOR = 0.7f;
+  private static final int MIN_CAPACITY = 16;
+
+  /**
+   * Slot where both halves are zero is free. The nil UUID is tracked by {@link #containsNil} instead.
+   */
+  private long[] high;
+  private long[] low;
+  private int uuids;
+  private int resizeAt;
+  private boolean containsNil;
+  private final Set<String> others = new HashSet<>();
+
+  public WorkflowIdSet() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of ids the set holds without growing
+   */
+  public WorkflowIdSet(int expectedSize) {
+    allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit((int) Math.min(expectedSize / LOAD_FACTOR, 1 << 30)) << 1));
+  }
+
+  public static WorkflowIdSet of(Iterable<String> ids) {
+    WorkflowIdSet set = new WorkflowIdSet();
+    ids.forEach(set::add);
+    return set;
+  }
+
+  /**
+   * @return false if the id was already present
+   */
+  public boolean add(String id) {
+    if (!isUuid(id)) {
+      return others.add(id);
+    }
+    return add(parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18),
+        parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36));
+  }
+
+  public boolean contains(String id) {
+    if (!isUuid(id)) {
+      return others.contains(id);
+    }
+    return contains(parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18),
+        parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36));
+  }
+
+  public boolean remove(String id) {
+    if (!isUuid(id)) {
+      return others.remove(id);
+    }
+    return remove(parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18),
+        parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36));
+  }
+
+  public int size() {
+    return uuids + (containsNil ? 1 : 0) + others.size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Ids of this set missing from {@code other}, e.g. workflows that closed between two snapshots.
+   */
+  public WorkflowIdSet difference(WorkflowIdSet other) {
+    WorkflowIdSet difference = new WorkflowIdSet();
+    for (int i = 0; i < high.length; i++) {
+      if ((high[i] | low[i]) != 0 && !other.contains(high[i], low[i])) {
+        difference.add(high[i], low[i]);
+      }
+    }
+    if (containsNil && !other.containsNil) {
+      difference.containsNil = true;
+    }
+    for (String id : others) {
+      if (!other.others.contains(id)) {
+        difference.others.add(id);
+      }
+    }
+    return difference;
+  }
+
+  public WorkflowIdSet intersection(WorkflowIdSet other) {
+    WorkflowIdSet intersection = new WorkflowIdSet();
+    for (int i = 0; i < high.length; i++) {
+      if ((high[i] | low[i]) != 0 && other.contains(high[i], low[i])) {
+        intersection.add(high[i], low[i]);
+      }
+    }
+    intersection.containsNil = containsNil && other.containsNil;
+    for (String id : others) {
+      if (other.others.contains(id)) {
+        intersection.others.add(id);
+      }
+    }
+    return intersection;
+  }
+
+  @Override
+  public void forEach(Consumer<? super String> action) {
+    for (int i = 0; i < high.length; i++) {
+      if ((high[i] | low[i]) != 0) {
+        action.accept(new UUID(high[i], low[i]).toString());
+      }
+    }
+    if (containsNil) {
+      action.accept(new UUID(0, 0).toString());
+    }
+    others.forEach(action);
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private int slot = nextSlot(0);
+      private boolean nilPending = containsNil;
+      private final Iterator<String> otherIds = others.iterator();
+
+      @Override
+      public boolean hasNext() {
+        return slot < high.length || nilPending || otherIds.hasNext();
+      }
+
+      @Override
+      public String next() {
+        if (slot < high.length) {
+          String id = new UUID(high[slot], low[slot]).toString();
+          slot = nextSlot(slot + 1);
+          return id;
+        }
+        if (nilPending) {
+          nilPending = false;
+          return new UUID(0, 0).toString();
+        }
+        if (!otherIds.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return otherIds.next();
+      }
+    };
+  }
+
+  private int nextSlot(int from) {
+    int slot = from;
+    while (slot < high.length && (high[slot] | low[slot]) == 0) {
+      slot++;
+    }
+    return slot;
+  }
+
+  private boolean add(long hi, long lo) {
+    if ((hi | lo) == 0) {
+      boolean added = !containsNil;
+      containsNil = true;
+      return added;
+    }
+    int mask = high.length - 1;
+    for (int slot = slotOf(hi, lo, mask); ; slot = (slot + 1) & mask) {
+      if ((high[slot] | low[slot]) == 0) {
+        high[slot] = hi;
+        low[slot] = lo;
+        if (++uuids >= resizeAt) {
+          resize();
+        }
+        return true;
+      }
+      if (high[slot] == hi && low[slot] == lo) {
+        return false;
+      }
+    }
+  }
+
+  private boolean contains(long hi, long lo) {
+    if ((hi | lo) == 0) {
+      return containsNil;
+    }
+    int mask = high.length - 1;
+    for (int slot = slotOf(hi, lo, mask); ; slot = (slot + 1) & mask) {
+      if (high[slot] == hi && low[slot] == lo) {
+        return true;
+      }
+      if ((high[slot] | low[slot]) == 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Backward-shift deletion, so lookups never need tombstones.
+   */
+  private boolean remove(long hi, long lo) {
+    if ((hi | lo) == 0) {
+      boolean removed = containsNil;
+      containsNil = false;
+      return removed;
+    }
+    int mask = high.length - 1;
+    int slot = slotOf(hi, lo, mask);
+    while (high[slot] != hi || low[slot] != lo) {
+      if ((high[slot] | low[slot]) == 0) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    int free = slot;
+    for (int next = (free + 1) & mask; (high[next] | low[next]) != 0; next = (next + 1) & mask) {
+      int home = slotOf(high[next], low[next], mask);
+      // move the entry back unless its home lies cyclically in (free, next]
+      if (((next - home) & mask) >= ((next - free) & mask)) {
+        high[free] = high[next];
+        low[free] = low[next];
+        free = next;
+      }
+    }
+    high[free] = 0;
+    low[free] = 0;
+    uuids--;
+    return true;
+  }
+
+  private void resize() {
+    long[] oldHigh = high;
+    long[] oldLow = low;
+    allocate(oldHigh.length << 1);
+    int mask = high.length - 1;
+    for (int i = 0; i < oldHigh.length; i++) {
+      if ((oldHigh[i] | oldLow[i]) != 0) {
+        int slot = slotOf(oldHigh[i], oldLow[i], mask);
+        while ((high[slot] | low[slot]) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        high[slot] = oldHigh[i];
+        low[slot] = oldLow[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    high = new long[capacity];
+    low = new long[capacity];
+    resizeAt = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private static int slotOf(long hi, long lo, int mask) {
+    long hash = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Only the canonical form is accepted, so that ids come back exactly as they were added.
+   */
+  private static boolean isUuid(String id) {
+    if (id.length() != UUID_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      char c = id.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23 ? c != '-' : !(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long parseHex(String id, int from, int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      char c = id.charAt(i);
+      value = value << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,313 @@
+package org.qwertech.cadenceplay.codegen;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a {@code PayloadCodec} for every {@code CompiledPayload} class. Lives in its own source root, so it is not packaged with the application and
+ * not discovered by other compilations; it is compiled first and passed to the main compilation on the processor path. Only depends on the JDK.
+ */
+@SupportedAnnotationTypes(PayloadCodecProcessor.ANNOTATION)
+public class PayloadCodecProcessor extends AbstractProcessor {
+
+  static final String ANNOTATION = "org.qwertech.cadenceplay.codegen.CompiledPayload";
+  static final String CODEC_SUFFIX = "_PayloadCodec";
+
+  private static final String CODEGEN_PACKAGE = "org.qwertech.cadenceplay.codegen.";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        TypeElement type = (TypeElement) element;
+        if (isSupported(type)) {
+          generate(type);
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean isSupported(TypeElement type) {
+    Set<Modifier> modifiers = type.getModifiers();
+    if (type.getKind() != ElementKind.CLASS || modifiers.contains(Modifier.ABSTRACT) || !type.getTypeParameters().isEmpty()) {
+      return error(type, "@CompiledPayload is only supported on concrete non-generic classes");
+    }
+    if (!modifiers.contains(Modifier.PUBLIC) || type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+      return error(type, "@CompiledPayload class must be public and, if nested, static");
+    }
+    List<Property> properties = properties(type);
+    for (Property property : properties) {
+      if (property.type.getKind() == TypeKind.TYPEVAR) {
+        return error(property.field, "@CompiledPayload fields of type variable type are not supported");
+      }
+      if (property.type.getKind() == TypeKind.BOOLEAN && property.name.startsWith("is")) {
+        return error(property.field, "@CompiledPayload boolean fields named is* are not supported, Jackson names their getter property differently");
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement type) {
+    String packageName = packageOf(type);
+    String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+    String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + CODEC_SUFFIX;
+    String payload = type.getQualifiedName().toString();
+    List<Property> properties = properties(type);
+
+    try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, type)
+        .openWriter())) {
+      if (!packageName.isEmpty()) {
+        out.println("package " + packageName + ";");
+        out.println();
+      }
+      out.println("/**");
+      out.println(" * Generated by {@link " + CODEGEN_PACKAGE + "PayloadCodecProcessor} for {@link " + payload + "}.");
+      out.println(" */");
+      out.println("public final class " + simpleName + " implements " + CODEGEN_PACKAGE + "PayloadCodec<" + payload + "> {");
+      out.println();
+      out.println("  @Override");
+      out.println("  public com.fasterxml.jackson.databind.JsonSerializer<" + payload + "> serializer() {");
+      out.println("    return new Serializer();");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public com.fasterxml.jackson.databind.JsonDeserializer<" + payload + "> deserializer() {");
+      out.println("    return new Deserializer();");
+      out.println("  }");
+      out.println();
+      writeSerializer(out, payload, properties);
+      out.println();
+      writeDeserializer(out, payload, properties);
+      out.println("}");
+    } catch (IOException e) {
+      error(type, "Failed to generate payload codec: " + e);
+    }
+  }
+
+  private void writeSerializer(PrintWriter out, String payload, List<Property> properties) {
+    out.println("  private static final class Serializer extends " + CODEGEN_PACKAGE + "PayloadSerializer<" + payload + "> {");
+    out.println();
+    out.println("    private static final long serialVersionUID = 1L;");
+    out.println();
+    out.println("    Serializer() {");
+    out.println("      super(" + payload + ".class);");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    protected void writeFields(" + payload + " value, com.fasterxml.jackson.core.JsonGenerator gen,");
+    out.println("        com.fasterxml.jackson.databind.SerializerProvider provider) throws java.io.IOException {");
+    for (Property property : properties) {
+      String name = quote(property.name);
+      String getter = "value." + property.getter() + "()";
+      switch (property.type.getKind()) {
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+          out.println("      gen.writeNumberField(" + name + ", " + getter + ");");
+          break;
+        case SHORT:
+        case BYTE:
+          out.println("      gen.writeNumberField(" + name + ", (int) " + getter + ");");
+          break;
+        case BOOLEAN:
+          out.println("      gen.writeBooleanField(" + name + ", " + getter + ");");
+          break;
+        default:
+          if (isString(property.type)) {
+            out.println("      gen.writeStringField(" + name + ", " + getter + ");");
+          } else {
+            out.println("      provider.defaultSerializeField(" + name + ", " + getter + ", gen);");
+          }
+      }
+    }
+    out.println("    }");
+    out.println("  }");
+  }
+
+  private void writeDeserializer(PrintWriter out, String payload, List<Property> properties) {
+    out.println("  private static final class Deserializer extends " + CODEGEN_PACKAGE + "PayloadDeserializer<" + payload + "> {");
+    out.println();
+    out.println("    private static final long serialVersionUID = 1L;");
+    out.println();
+    for (Property property : properties) {
+      out.println("    private com.fasterxml.jackson.databind.JsonDeserializer<Object> " + property.deserializerField() + ";");
+    }
+    out.println();
+    out.println("    Deserializer() {");
+    out.println("      super(" + payload + ".class);");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public void resolve(com.fasterxml.jackson.databind.DeserializationContext ctxt) throws com.fasterxml.jackson.databind.JsonMappingException {");
+    for (Property property : properties) {
+      out.println("      " + property.deserializerField() + " = find(ctxt, " + typeExpression(property.type) + ");");
+    }
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    protected " + payload + " newInstance() {");
+    out.println("      return new " + payload + "();");
+    out.println("    }");
+    out.println();
+    if (properties.stream().anyMatch(property -> needsUncheckedCast(property.type))) {
+      out.println("    @SuppressWarnings(\"unchecked\")");
+    }
+    out.println("    @Override");
+    out.println("    protected boolean readField(String name, " + payload + " value, com.fasterxml.jackson.core.JsonParser p,");
+    out.println("        com.fasterxml.jackson.databind.DeserializationContext ctxt) throws java.io.IOException {");
+    out.println("      switch (name) {");
+    for (Property property : properties) {
+      out.println("        case " + quote(property.name) + ":");
+      out.println("          value." + property.setter() + "(" + readExpression(property) + ");");
+      out.println("          return true;");
+    }
+    out.println("        default:");
+    out.println("          return false;");
+    out.println("      }");
+    out.println("    }");
+    out.println("  }");
+  }
+
+  private String readExpression(Property property) {
+    String arguments = "(" + property.deserializerField() + ", p, ctxt)";
+    switch (property.type.getKind()) {
+      case INT:
+        return "readInt" + arguments;
+      case LONG:
+        return "readLong" + arguments;
+      case BOOLEAN:
+        return "readBoolean" + arguments;
+      case SHORT:
+      case BYTE:
+      case CHAR:
+      case FLOAT:
+      case DOUBLE:
+        String boxed = processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(property.type.getKind())).getQualifiedName().toString();
+        return "(" + boxed + ") read" + arguments;
+      default:
+        if (isString(property.type)) {
+          return "readString" + arguments;
+        }
+        return "(" + property.type + ") read" + arguments;
+    }
+  }
+
+  /**
+   * {@code read} returns Object, and a cast to a parameterized type is unchecked.
+   */
+  private static boolean needsUncheckedCast(TypeMirror type) {
+    return type.getKind() == TypeKind.ARRAY ? needsUncheckedCast(((ArrayType) type).getComponentType())
+        : type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty();
+  }
+
+  private String typeExpression(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return type + ".class";
+    }
+    if (type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+      return processingEnv.getTypeUtils().erasure(type) + ".class";
+    }
+    return "new com.fasterxml.jackson.core.type.TypeReference<" + type + ">() {\n      }.getType()";
+  }
+
+  /**
+   * Non-static, non-transient fields in the order Jackson sees them: superclass fields first, then declaration order.
+   */
+  private List<Property> properties(TypeElement type) {
+    List<Property> properties = new ArrayList<>();
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() == TypeKind.DECLARED) {
+      TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+      if (!superElement.getQualifiedName().contentEquals("java.lang.Object")) {
+        properties.addAll(properties(superElement));
+      }
+    }
+    for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+      Set<Modifier> modifiers = field.getModifiers();
+      if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+        properties.add(new Property(field));
+      }
+    }
+    return properties;
+  }
+
+  private boolean isString(TypeMirror type) {
+    return type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+  }
+
+  private static String packageOf(TypeElement type) {
+    Element element = type;
+    while (!(element instanceof PackageElement)) {
+      element = element.getEnclosingElement();
+    }
+    return ((PackageElement) element).getQualifiedName().toString();
+  }
+
+  private static String quote(String name) {
+    return "\"" + name + "\"";
+  }
+
+  private boolean error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+    return false;
+  }
+
+  private static final class Property {
+
+    private final VariableElement field;
+    private final String name;
+    private final TypeMirror type;
+
+    private Property(VariableElement field) {
+      this.field = field;
+      this.name = field.getSimpleName().toString();
+      this.type = field.asType();
+    }
+
+    /**
+     * Lombok accessor names.
+     */
+    private String getter() {
+      return (type.getKind() == TypeKind.BOOLEAN ? "is" : "get") + capitalized();
+    }
+
+    private String setter() {
+      return "set" + capitalized();
+    }
+
+    private String deserializerField() {
+      return name + "Deserializer";
+    }
+
+    private String capitalized() {
+      return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+  }
+}
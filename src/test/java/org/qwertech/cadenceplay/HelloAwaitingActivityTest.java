@@ -1,78 +1,76 @@
 package org.qwertech.cadenceplay;
 
-import com.uber.cadence.WorkflowExecution;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
 import com.uber.cadence.WorkflowIdReusePolicy;
 import com.uber.cadence.client.WorkflowClient;
 import com.uber.cadence.client.WorkflowClientOptions;
 import com.uber.cadence.client.WorkflowOptions;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 import lombok.SneakyThrows;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.qwertech.cadenceplay.HelloAwaitingActivity.GreetingWorkflow;
+import org.qwertech.cadenceplay.load.SignalQueryStress;
+import org.qwertech.cadenceplay.load.StressResult;
+import org.qwertech.cadenceplay.load.StressResult.Operation;
 
+/**
+ * Signal/query stress against a worker started by {@link HelloAwaitingActivity#main}, skipped when no Cadence server listens on localhost:7933. Tune with
+ * -Dstress.workflows, -Dstress.queryRatio, -Dstress.concurrency, -Dstress.durationSeconds and -Dstress.timeoutMillis.
+ */
 public class HelloAwaitingActivityTest {
 
+  private static final int WORKFLOWS = Integer.getInteger("stress.workflows", 10);
+  private static final double QUERY_RATIO = Double.parseDouble(System.getProperty("stress.queryRatio", "0.5"));
+  private static final int CONCURRENCY = Integer.getInteger("stress.concurrency", 16);
+  private static final int DURATION_SECONDS = Integer.getInteger("stress.durationSeconds", 30);
+  private static final int TIMEOUT_MILLIS = Integer.getInteger("stress.timeoutMillis", 10_000);
+
   private WorkflowClient workflowClient;
   private final String domain = "test-domain";
-
+  private final List<GreetingWorkflow> workflows = new ArrayList<>();
 
   @SneakyThrows
   @Before
   public void setUp() {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress("localhost", 7933), 1000);
+    } catch (IOException e) {
+      assumeNoException("Cadence server is not reachable", e);
+    }
     workflowClient = WorkflowClient.newInstance("localhost", 7933, domain,
         new WorkflowClientOptions.Builder().setDataConverter(JacksonDataConverter.getInstance()).build());
   }
 
-  @Test
-  @SneakyThrows
-  public void testActivityImpl100() {
-    List<AtomicInteger> repeats = new ArrayList<>();
-    for (int i = 0; i < 100; i++) {
-      repeats.add(testActivityImpl());
-    }
-    System.out.println(repeats);
-    System.out.println("Avarage: " + repeats.stream().collect(Collectors.averagingInt(AtomicInteger::get)));
+  @After
+  public void tearDown() {
+    workflows.forEach(GreetingWorkflow::unlockSignal);
   }
 
-//  @Test
-  @SneakyThrows
-  public AtomicInteger testActivityImpl() {
-    List<HelloAwaitingActivity.GreetingWorkflow> wfs = new ArrayList();
-    List<WorkflowExecution> wes = new ArrayList();
-    // Get a workflow stub using the same task list the worker uses
+  @Test
+  public void stressSignalsAndQueries() {
     final long nanoTime = System.nanoTime();
-    for (int i = 0; i < 10; i++) {
-      HelloAwaitingActivity.GreetingWorkflow workflow =
-          workflowClient
-              .newWorkflowStub(HelloAwaitingActivity.GreetingWorkflow.class,
-                  new WorkflowOptions.Builder().setWorkflowId(i + "_" + nanoTime)
-                      .setWorkflowIdReusePolicy(WorkflowIdReusePolicy.AllowDuplicate).build());
-      // Execute a workflow waiting for it to complete.
-      WorkflowExecution we = WorkflowClient.start(workflow::getGreeting, i, "World");
-      System.out.println("OrderId - " + i + " wid - " + we.workflowId);
-      wfs.add(workflow);
-      wes.add(we);
+    for (int i = 0; i < WORKFLOWS; i++) {
+      GreetingWorkflow workflow = workflowClient.newWorkflowStub(GreetingWorkflow.class,
+          new WorkflowOptions.Builder().setWorkflowId(i + "_" + nanoTime).setWorkflowIdReusePolicy(WorkflowIdReusePolicy.AllowDuplicate).build());
+      WorkflowClient.start(workflow::getGreeting, i, "World");
+      workflows.add(workflow);
     }
-    System.out.println("Number of workflows - " + wfs.size());
-    AtomicInteger count = new AtomicInteger();
-    try {
-      wfs.parallelStream()
-          .forEach(
-              w -> {
-                w.noopSignal();
-                //              w.unlockSignal();
-                System.out.println("query - " + w.queryOrderId());
-                count.incrementAndGet();
-              });
-    } catch (Exception e) {
 
+    StressResult result = new SignalQueryStress(CONCURRENCY, QUERY_RATIO, TimeUnit.SECONDS.toMillis(DURATION_SECONDS), TIMEOUT_MILLIS,
+        TimeUnit.MILLISECONDS).run(workflows, GreetingWorkflow::noopSignal, GreetingWorkflow::queryOrderId);
+    for (Operation operation : Operation.values()) {
+      assertTrue(operation + " errors " + result.getErrors(operation), result.getErrors(operation).isEmpty());
+      assertEquals(operation + " timeouts", 0, result.getTimeouts(operation));
     }
-
-//    Thread.sleep(20000);
-    System.out.println(count + " END!!!");
-    return count;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package org.qwertech.cadenceplay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.reflect.TypeToken;
+import com.uber.cadence.converter.DataConverter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+
+public class JacksonDataConverterTest {
+
+  private static final Type MISMATCH_LIST = new TypeToken<List<Mismatch>>() {
+  }.getType();
+
+  private final DataConverter converter = JacksonDataConverter.getInstance();
+
+  @Test
+  public void fromDataArrayReadsEveryArgument() {
+    List<Mismatch> mismatches = Arrays.asList(mismatch("A1"), mismatch("B2"));
+    byte[] content = converter.toData("order", 42, mismatches);
+
+    Object[] result = converter.fromDataArray(content, String.class, int.class, MISMATCH_LIST);
+
+    assertArrayEquals(new Object[]{"order", 42, mismatches}, result);
+  }
+
+  @Test
+  public void fromDataArrayFillsMissingTrailingArgumentsWithDefaults() {
+    Object[] result = converter.fromDataArray(json("[\"order\"]"), String.class, int.class, boolean.class, MISMATCH_LIST, Integer.class);
+
+    assertArrayEquals(new Object[]{"order", 0, false, null, null}, result);
+  }
+
+  @Test
+  public void fromDataArrayFillsAllArgumentsWithDefaultsForEmptyArray() {
+    Object[] result = converter.fromDataArray(json("[]"), long.class, String.class);
+
+    assertArrayEquals(new Object[]{0L, null}, result);
+  }
+
+  @Test
+  public void fromDataArrayTreatsNonArrayContentAsFirstArgument() {
+    Object[] result = converter.fromDataArray(json("{\"code\":\"A1\"}"), Mismatch.class, int.class);
+
+    assertEquals(mismatch("A1"), result[0]);
+    assertEquals(0, result[1]);
+  }
+
+  @Test
+  public void fromDataArrayTreatsScalarContentAsFirstArgument() {
+    Object[] result = converter.fromDataArray(json("\"order\""), String.class, String.class);
+
+    assertArrayEquals(new Object[]{"order", null}, result);
+  }
+
+  @Test
+  public void fromDataArrayIgnoresExtraElements() {
+    Object[] result = converter.fromDataArray(json("[1, {\"code\":\"A1\"}, \"extra\", [1, 2]]"), int.class, Mismatch.class);
+
+    assertArrayEquals(new Object[]{1, mismatch("A1")}, result);
+  }
+
+  @Test
+  public void fromDataArrayKeepsNullElements() {
+    Object[] result = converter.fromDataArray(json("[null, \"order\"]"), Mismatch.class, String.class);
+
+    assertNull(result[0]);
+    assertEquals("order", result[1]);
+  }
+
+  @Test
+  public void fromDataArrayAcceptsUnquotedFieldNames() {
+    Object[] result = converter.fromDataArray(json("[{code:\"A1\"}, 7]"), Mismatch.class, int.class);
+
+    assertArrayEquals(new Object[]{mismatch("A1"), 7}, result);
+  }
+
+  @Test
+  public void smileConverterRoundTripsSmilePayloads() {
+    DataConverter smileConverter = JacksonDataConverter.getSmileInstance();
+    byte[] single = smileConverter.toData(mismatch("A1"));
+    byte[] multiple = smileConverter.toData("order", 42);
+
+    assertEquals(PayloadFormat.SMILE, PayloadFormat.of(single));
+    assertEquals(PayloadFormat.SMILE, PayloadFormat.of(multiple));
+    assertEquals(mismatch("A1"), smileConverter.fromData(single, Mismatch.class, Mismatch.class));
+    assertArrayEquals(new Object[]{"order", 42}, smileConverter.fromDataArray(multiple, String.class, int.class));
+  }
+
+  @Test
+  public void smileConverterReadsJsonPayloads() {
+    DataConverter smileConverter = JacksonDataConverter.getSmileInstance();
+
+    assertEquals(mismatch("A1"), smileConverter.fromData(converter.toData(mismatch("A1")), Mismatch.class, Mismatch.class));
+    assertArrayEquals(new Object[]{"order", 42}, smileConverter.fromDataArray(converter.toData("order", 42), String.class, int.class));
+  }
+
+  @Test
+  public void jsonConverterReadsSmilePayloads() {
+    byte[] content = JacksonDataConverter.getSmileInstance().toData(mismatch("A1"));
+
+    assertEquals(mismatch("A1"), converter.fromData(content, Mismatch.class, Mismatch.class));
+  }
+
+  private static Mismatch mismatch(String code) {
+    Mismatch mismatch = new Mismatch();
+    mismatch.setCode(code);
+    return mismatch;
+  }
+
+  private static byte[] json(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,104 @@
+package org.qwertech.cadenceplay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.reflect.TypeToken;
+import com.uber.cadence.converter.DataConverter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+
+public class LazyPayloadTest {
+
+  private static final Type LAZY_MISMATCH = new TypeToken<LazyPayload<Mismatch>>() {
+  }.getType();
+
+  private final DataConverter converter = JacksonDataConverter.getInstance();
+
+  @Test
+  public void passesSingleValueThroughWithoutDecoding() {
+    byte[] content = json("{\"code\" : \"A1\",  \"message\":null}");
+
+    LazyPayload<?> payload = (LazyPayload<?>) converter.fromDataArray(content, LAZY_MISMATCH)[0];
+
+    assertFalse(payload.isDecoded());
+    assertSame(content, converter.toData(payload));
+  }
+
+  @Test
+  public void decodesOnGet() {
+    byte[] content = converter.toData(mismatch("A1"));
+
+    LazyPayload<?> payload = converter.fromData(content, LazyPayload.class, LAZY_MISMATCH);
+
+    assertEquals(mismatch("A1"), payload.get());
+    assertTrue(payload.isDecoded());
+  }
+
+  @Test
+  public void passesArgumentOfMultipleThroughUnchanged() {
+    byte[] content = json("[\"order\", {\"code\" : \"A1\",\n \"message\":\"x, y\"} , 7]");
+
+    Object[] arguments = converter.fromDataArray(content, String.class, LAZY_MISMATCH, int.class);
+    LazyPayload<?> payload = (LazyPayload<?>) arguments[1];
+
+    assertEquals("order", arguments[0]);
+    assertEquals(7, arguments[2]);
+    assertArrayEquals(json("{\"code\" : \"A1\",\n \"message\":\"x, y\"}"), converter.toData(payload));
+    assertEquals("x, y", ((Mismatch) payload.get()).getMessage());
+  }
+
+  @Test
+  public void passesScalarArgumentsThroughUnchanged() {
+    Type lazyString = new TypeToken<LazyPayload<String>>() {
+    }.getType();
+
+    Object[] arguments = converter.fromDataArray(json("[ \"order\",null]"), lazyString, lazyString);
+
+    assertArrayEquals(json("\"order\""), converter.toData(arguments[0]));
+    assertNull(((LazyPayload<?>) arguments[1]).get());
+  }
+
+  @Test
+  public void writesUndecodedPayloadsAmongMultipleValues() {
+    byte[] content = json("{\"code\":\"A1\"}");
+    LazyPayload<?> payload = (LazyPayload<?>) converter.fromDataArray(content, LAZY_MISMATCH)[0];
+
+    byte[] multiple = converter.toData("order", payload);
+
+    assertEquals("[\"order\",{\"code\":\"A1\"}]", new String(multiple, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void writesValueOfCreatedPayload() {
+    assertArrayEquals(converter.toData(mismatch("A1")), converter.toData(LazyPayload.of(mismatch("A1"))));
+  }
+
+  @Test
+  public void passesSmileArgumentsThrough() {
+    DataConverter smileConverter = JacksonDataConverter.getSmileInstance();
+    byte[] content = smileConverter.toData("order", mismatch("A1"));
+
+    Object[] arguments = smileConverter.fromDataArray(content, String.class, LAZY_MISMATCH);
+    LazyPayload<?> payload = (LazyPayload<?>) arguments[1];
+
+    assertEquals(mismatch("A1"), smileConverter.fromData(smileConverter.toData(payload), Mismatch.class, Mismatch.class));
+    assertEquals(mismatch("A1"), smileConverter.fromDataArray(smileConverter.toData("order", payload), String.class, Mismatch.class)[1]);
+  }
+
+  private static Mismatch mismatch(String code) {
+    Mismatch mismatch = new Mismatch();
+    mismatch.setCode(code);
+    return mismatch;
+  }
+
+  private static byte[] json(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,87 @@
+package org.qwertech.cadenceplay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Strings;
+import com.google.common.reflect.TypeToken;
+import com.uber.cadence.converter.DataConverter;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+
+public class StringTableTest {
+
+  private static final Type STRING_LIST = new TypeToken<List<String>>() {
+  }.getType();
+
+  @Test
+  public void returnsCachedInstanceOnHit() {
+    StringTable table = new StringTable();
+
+    String first = table.canonicalize("xFLK-1".toCharArray(), 1, 5);
+    String second = table.canonicalize("FLK-1y".toCharArray(), 0, 5);
+
+    assertEquals("FLK-1", first);
+    assertSame(first, second);
+    assertEquals(1, table.getHits());
+    assertEquals(1, table.getMisses());
+    assertEquals(0.5, table.getHitRate(), 0);
+  }
+
+  @Test
+  public void doesNotCacheLongStrings() {
+    StringTable table = new StringTable(16, 8);
+    char[] chars = Strings.repeat("x", 9).toCharArray();
+
+    assertNotSame(table.canonicalize(chars, 0, chars.length), table.canonicalize(chars, 0, chars.length));
+    assertEquals(0, table.getSize());
+  }
+
+  @Test
+  public void staysWithinSlots() {
+    StringTable table = new StringTable(16, 8);
+
+    for (int i = 0; i < 1000; i++) {
+      char[] chars = String.valueOf(i).toCharArray();
+      assertEquals(String.valueOf(i), table.canonicalize(chars, 0, chars.length));
+    }
+
+    assertTrue(table.getSize() <= 16);
+  }
+
+  @Test
+  public void canonicalizesDecodedPayloads() {
+    DataConverter converter = JacksonDataConverter.withStringTable(new StringTable(), PayloadFormat.JSON);
+    byte[] content = converter.toData(mismatch("FLK-1"));
+
+    Mismatch first = converter.fromData(content, Mismatch.class, Mismatch.class);
+    Mismatch second = converter.fromData(content, Mismatch.class, Mismatch.class);
+    List<?> codes = converter.fromData(converter.toData(Arrays.asList("FLK-1", "FLK-1")), List.class, STRING_LIST);
+
+    assertEquals(mismatch("FLK-1"), first);
+    assertSame(first.getCode(), second.getCode());
+    assertSame(first.getCode(), codes.get(0));
+    assertSame(codes.get(0), codes.get(1));
+  }
+
+  @Test
+  public void canonicalizesSmilePayloads() {
+    DataConverter converter = JacksonDataConverter.withStringTable(new StringTable(), PayloadFormat.SMILE);
+    byte[] content = converter.toData(mismatch("FLK-2"));
+
+    assertSame(converter.fromData(content, Mismatch.class, Mismatch.class).getCode(),
+        converter.fromData(content, Mismatch.class, Mismatch.class).getCode());
+  }
+
+  private static Mismatch mismatch(String code) {
+    Mismatch mismatch = new Mismatch();
+    mismatch.setCode(code);
+    mismatch.setMessage("Field value does not match the registry record");
+    return mismatch;
+  }
+}
@@ -0,0 +1,67 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+import org.qwertech.cadenceplay.codegen.CompiledPayload;
+
+/**
+ * Generated {@link CompiledPayload} codecs against Jackson's reflective bean (de)serializers on the same {@link FlkReport}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledPayloadBenchmark {
+
+  @Param({"compiled", "reflective"})
+  public String codec;
+
+  @Param({"1", "20", "500"})
+  public int mismatches;
+
+  private FlkReport report;
+  private byte[] content;
+  private ObjectReader reader;
+  private ObjectWriter writer;
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper jackson = "compiled".equals(codec)
+        ? JacksonDataConverter.getDefaultJackson()
+        : new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+    reader = jackson.readerFor(FlkReport.class);
+    writer = jackson.writerFor(FlkReport.class);
+    report = Payloads.flkReport(mismatches);
+    content = writer.writeValueAsBytes(report);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return writer.writeValueAsBytes(report);
+  }
+
+  @Benchmark
+  public Object deserialize() throws IOException {
+    return reader.readValue(content);
+  }
+}
@@ -0,0 +1,147 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.google.common.reflect.TypeToken;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.JsonDataConverter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+/**
+ * {@link JacksonDataConverter} against the Gson {@link JsonDataConverter} it replaces, on every kind of call the client makes: single value, multiple
+ * arguments, generic argument types and the Gson fallback of {@code LocalActivityMarkerHeader}. Payloads range from a short string to a large nested DTO.
+ * <p>
+ * Reports throughput and sampled latency; {@code mvn -P benchmark test} adds the gc profiler for allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataConverterBenchmark {
+
+  private static final Type MISMATCH_LIST = new TypeToken<List<Mismatch>>() {
+  }.getType();
+  private static final String MARKER_HEADER_CLASS = "com.uber.cadence.internal.common.LocalActivityMarkerData$LocalActivityMarkerHeader";
+
+  @Param({"jackson", "gson"})
+  public String converterName;
+
+  /**
+   * Number of {@link Mismatch}es in DTO payloads, 0 stands for a plain string.
+   */
+  @Param({"0", "10", "1000"})
+  public int size;
+
+  private DataConverter converter;
+
+  private Object single;
+  private Class<?> singleClass;
+  private byte[] singleContent;
+
+  private Object[] multiple;
+  private Type[] multipleTypes;
+  private byte[] multipleContent;
+
+  private List<Mismatch> generic;
+  private byte[] genericContent;
+
+  private Class<?> markerHeaderClass;
+  private Object markerHeader;
+  private byte[] markerHeaderContent;
+
+  @Setup
+  public void setUp() throws ClassNotFoundException {
+    converter = "gson".equals(converterName) ? JsonDataConverter.getInstance() : JacksonDataConverter.getInstance();
+
+    FlkReport report = Payloads.flkReport(Math.max(size, 1));
+    single = size == 0 ? "World123" : report;
+    singleClass = single.getClass();
+    singleContent = converter.toData(single);
+
+    multiple = new Object[]{report.getRequestId().toString(), size, single};
+    multipleTypes = new Type[]{String.class, int.class, singleClass};
+    multipleContent = converter.toData(multiple);
+
+    generic = report.getMismatches();
+    genericContent = converter.toData(generic);
+
+    markerHeaderClass = Class.forName(MARKER_HEADER_CLASS);
+    byte[] markerHeaderJson = "{\"activityId\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+    markerHeader = JsonDataConverter.getInstance().fromData(markerHeaderJson, markerHeaderClass, markerHeaderClass);
+    markerHeaderContent = converter.toData(markerHeader);
+  }
+
+  @Benchmark
+  public byte[] toDataSingle() {
+    return converter.toData(single);
+  }
+
+  @Benchmark
+  public Object fromDataSingle() {
+    return converter.fromData(singleContent, singleClass, singleClass);
+  }
+
+  @Benchmark
+  public Object[] fromDataArraySingle() {
+    return converter.fromDataArray(singleContent, singleClass);
+  }
+
+  @Benchmark
+  public byte[] toDataMultiple() {
+    return converter.toData(multiple);
+  }
+
+  @Benchmark
+  public Object[] fromDataArrayMultiple() {
+    return converter.fromDataArray(multipleContent, multipleTypes);
+  }
+
+  @Benchmark
+  public byte[] toDataGeneric() {
+    return converter.toData(generic);
+  }
+
+  @Benchmark
+  public Object fromDataGeneric() {
+    return converter.fromData(genericContent, List.class, MISMATCH_LIST);
+  }
+
+  @Benchmark
+  public byte[] toDataMarkerHeader() {
+    return converter.toData(markerHeader);
+  }
+
+  @Benchmark
+  public Object fromDataMarkerHeader() {
+    return converter.fromData(markerHeaderContent, markerHeaderClass, markerHeaderClass);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(DataConverterBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
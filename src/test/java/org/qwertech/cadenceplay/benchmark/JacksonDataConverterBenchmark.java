@@ -0,0 +1,104 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.reflect.TypeToken;
+import com.uber.cadence.converter.DataConverter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+/**
+ * Compares cached per-type readers/writers of {@link JacksonDataConverter} with the plain {@link ObjectMapper} calls the converter used to make on every call.
+ * {@code toDataObjectWriter} is the encode path before buffer recycling, compare its {@code gc.alloc.rate.norm} with {@code toDataConverter}.
+ * <p>
+ * Run with {@code mvn -P benchmark test -Dbenchmark.include=JacksonDataConverterBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JacksonDataConverterBenchmark {
+
+  private static final Type MISMATCH_LIST = new TypeToken<List<Mismatch>>() {
+  }.getType();
+
+  private final ObjectMapper jackson = JacksonDataConverter.getDefaultJackson();
+  private final DataConverter converter = new JacksonDataConverter(JacksonDataConverter.getDefaultJackson());
+
+  private final ObjectWriter reportWriter = jackson.writerFor(FlkReport.class);
+
+  private FlkReport report;
+  private byte[] reportJson;
+  private byte[] mismatchesJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    report = Payloads.flkReport(20);
+    reportJson = jackson.writeValueAsBytes(report);
+    mismatchesJson = jackson.writeValueAsBytes(report.getMismatches());
+  }
+
+  @Benchmark
+  public byte[] toDataObjectMapper() throws IOException {
+    return jackson.writeValueAsBytes(report);
+  }
+
+  @Benchmark
+  public byte[] toDataObjectWriter() throws IOException {
+    return reportWriter.writeValueAsBytes(report);
+  }
+
+  @Benchmark
+  public byte[] toDataConverter() {
+    return converter.toData(report);
+  }
+
+  @Benchmark
+  public Object fromDataObjectMapper() throws IOException {
+    return jackson.readValue(reportJson, jackson.constructType(FlkReport.class));
+  }
+
+  @Benchmark
+  public Object fromDataConverter() {
+    return converter.fromData(reportJson, FlkReport.class, FlkReport.class);
+  }
+
+  @Benchmark
+  public Object fromDataGenericObjectMapper() throws IOException {
+    return jackson.readValue(mismatchesJson, jackson.constructType(MISMATCH_LIST));
+  }
+
+  @Benchmark
+  public Object fromDataGenericConverter() {
+    return converter.fromData(mismatchesJson, List.class, MISMATCH_LIST);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(JacksonDataConverterBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,81 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.uber.cadence.converter.DataConverter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+import org.qwertech.cadenceplay.PayloadFormat;
+
+/**
+ * Throughput of JSON and Smile payloads on {@link FlkReport}s of different sizes. Encoded sizes are printed before the benchmark starts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadFormatBenchmark {
+
+  private static final int[] MISMATCHES = {1, 20, 500};
+
+  @Param({"JSON", "SMILE"})
+  public PayloadFormat format;
+
+  @Param({"1", "20", "500"})
+  public int mismatches;
+
+  private DataConverter converter;
+  private FlkReport report;
+  private byte[] content;
+
+  @Setup
+  public void setUp() {
+    converter = converterFor(format);
+    report = Payloads.flkReport(mismatches);
+    content = converter.toData(report);
+  }
+
+  @Benchmark
+  public byte[] toData() {
+    return converter.toData(report);
+  }
+
+  @Benchmark
+  public Object fromData() {
+    return converter.fromData(content, FlkReport.class, FlkReport.class);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int count : MISMATCHES) {
+      FlkReport report = Payloads.flkReport(count);
+      int json = converterFor(PayloadFormat.JSON).toData(report).length;
+      int smile = converterFor(PayloadFormat.SMILE).toData(report).length;
+      System.out.printf("mismatches=%d json=%d bytes smile=%d bytes (%.1f%%)%n", count, json, smile, 100.0 * smile / json);
+    }
+    new Runner(new OptionsBuilder()
+        .include(PayloadFormatBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+
+  private static DataConverter converterFor(PayloadFormat format) {
+    return format == PayloadFormat.SMILE ? JacksonDataConverter.getSmileInstance() : JacksonDataConverter.getInstance();
+  }
+}
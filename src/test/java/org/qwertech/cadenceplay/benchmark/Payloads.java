@@ -0,0 +1,30 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import java.util.UUID;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+
+/**
+ * Realistic payloads shared by the converter benchmarks.
+ */
+final class Payloads {
+
+  private Payloads() {
+  }
+
+  static FlkReport flkReport(int mismatches) {
+    FlkReport report = new FlkReport();
+    report.setRequestId(UUID.randomUUID());
+    report.setBusinessObjectId(UUID.randomUUID().toString());
+    for (int i = 0; i < mismatches; i++) {
+      Mismatch mismatch = new Mismatch();
+      mismatch.setCode("FLK-" + (i % 7));
+      mismatch.setMessage("Field value does not match the registry record #" + i);
+      mismatch.setIsCritical(i % 3 == 0);
+      mismatch.setExternalObjectId(UUID.randomUUID().toString());
+      mismatch.setBusinessObjectId(report.getBusinessObjectId());
+      report.getMismatches().add(mismatch);
+    }
+    return report;
+  }
+}
@@ -0,0 +1,123 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.uber.cadence.internal.common.WorkflowExecutionHistory;
+import com.uber.cadence.testing.TestWorkflowEnvironment;
+import com.uber.cadence.worker.Worker;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Replays whole histories the way a worker does on a sticky cache miss, through {@link Worker#replayWorkflowExecution} with the repository's workflow
+ * implementations and {@code JacksonDataConverter}, without a Cadence server. Histories come from {@link ReplayHistories}.
+ * <p>
+ * {@link #main} replays every history in the directory and prints time and allocation per history and per event, and, per workflow, a least squares fit
+ * of replay time over history length: the fixed cost and the cost each event adds. {@code GreetingWorkflow} histories are left out: its implementation
+ * runs a raw {@code Thread.sleep(500)} on every replay, which would hide the replay cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+
+  private static final String ALLOCATION = "·gc.alloc.rate.norm";
+  private static final String SLEEPING_WORKFLOW = "GreetingWorkflow-";
+
+  @Param({"HelloWorld-1.json", "HelloWorld-10.json", "HelloWorld-100.json", "LongWorkflow-1.json", "LongWorkflow-10.json", "LongWorkflow-100.json"})
+  public String history;
+
+  private TestWorkflowEnvironment environment;
+  private Worker worker;
+  private WorkflowExecutionHistory execution;
+
+  @Setup
+  public void setUp() throws IOException {
+    execution = ReplayHistories.load(history);
+    environment = ReplayHistories.environment();
+    worker = environment.newWorker("replay");
+    ReplayHistories.registerWorkflows(worker);
+  }
+
+  @TearDown
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Benchmark
+  public void replay() throws Exception {
+    worker.replayWorkflowExecution(execution);
+  }
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    List<String> histories = ReplayHistories.names().stream().filter(name -> !name.startsWith(SLEEPING_WORKFLOW)).collect(Collectors.toList());
+    Collection<RunResult> results = new Runner(new OptionsBuilder()
+        .include(ReplayBenchmark.class.getSimpleName())
+        .param("history", histories.toArray(new String[0]))
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+
+    Map<String, List<double[]>> costByWorkflow = new LinkedHashMap<>();
+    System.out.printf("%n%-32s %8s %14s %12s %14s %12s%n", "history", "events", "us/replay", "us/event", "bytes/replay", "bytes/event");
+    for (RunResult result : results) {
+      String name = result.getParams().getParam("history");
+      int events = ReplayHistories.load(name).getEvents().size();
+      double micros = result.getPrimaryResult().getScore();
+      Result<?> allocation = result.getSecondaryResults().get(ALLOCATION);
+      double bytes = allocation == null ? Double.NaN : allocation.getScore();
+      System.out.printf("%-32s %8d %14.1f %12.2f %14.0f %12.0f%n", name, events, micros, micros / events, bytes, bytes / events);
+      String workflow = name.contains("-") ? name.substring(0, name.lastIndexOf('-')) : name;
+      costByWorkflow.computeIfAbsent(workflow, key -> new ArrayList<>()).add(new double[]{events, micros});
+    }
+
+    System.out.printf("%n%-32s %14s %12s%n", "workflow", "fixed us", "us/event");
+    costByWorkflow.forEach((workflow, points) -> {
+      if (points.size() > 1) {
+        double[] fit = leastSquares(points);
+        System.out.printf("%-32s %14.1f %12.2f%n", workflow, fit[0], fit[1]);
+      }
+    });
+  }
+
+  /**
+   * @return intercept and slope of the line through {@code (x, y)} points
+   */
+  private static double[] leastSquares(List<double[]> points) {
+    double meanX = points.stream().mapToDouble(point -> point[0]).average().orElse(0);
+    double meanY = points.stream().mapToDouble(point -> point[1]).average().orElse(0);
+    double covariance = 0;
+    double variance = 0;
+    for (double[] point : points) {
+      covariance += (point[0] - meanX) * (point[1] - meanY);
+      variance += (point[0] - meanX) * (point[0] - meanX);
+    }
+    double slope = variance == 0 ? 0 : covariance / variance;
+    return new double[]{meanY - slope * meanX, slope};
+  }
+}
@@ -0,0 +1,145 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.google.common.io.ByteStreams;
+import com.uber.cadence.GetWorkflowExecutionHistoryRequest;
+import com.uber.cadence.GetWorkflowExecutionHistoryResponse;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.client.WorkflowClient;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.client.WorkflowStub;
+import com.uber.cadence.internal.common.WorkflowExecutionHistory;
+import com.uber.cadence.testing.TestEnvironmentOptions;
+import com.uber.cadence.testing.TestWorkflowEnvironment;
+import com.uber.cadence.worker.Worker;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.qwertech.cadenceplay.GettingStarted.HelloWorld;
+import org.qwertech.cadenceplay.GettingStarted.HelloWorldImpl;
+import org.qwertech.cadenceplay.GettingStartedActivities.HelloWordActivitiesImpl;
+import org.qwertech.cadenceplay.HelloAwaitingActivity.GreetingWorkflowImpl;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.LongWorkflow;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.LongWorkflowImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ShortWorkflowImpl;
+
+/**
+ * Histories of the sample workflows for {@link ReplayBenchmark}, recorded on the in-memory {@link TestWorkflowEnvironment} with {@link JacksonDataConverter},
+ * so no Cadence server is needed. Each sample is recorded with 1, 10 and 100 signals as {@code <workflow>-<signals>.json} in {@code replay.histories}
+ * (default {@code target/replay-histories}); histories captured elsewhere with {@link WorkflowExecutionHistory#toJson()} can be put next to them.
+ * {@code GreetingWorkflow} is not recorded, it sleeps in the workflow thread on every replay.
+ */
+final class ReplayHistories {
+
+  static final String DOMAIN = "test-domain";
+  static final int[] SIGNALS = {1, 10, 100};
+
+  private static final Duration EXECUTION_TIMEOUT = Duration.ofHours(1);
+
+  private ReplayHistories() {
+  }
+
+  static Path directory() {
+    return Paths.get(System.getProperty("replay.histories", "target/replay-histories"));
+  }
+
+  /**
+   * Names of all histories in the directory, recording the sample ones first if they are missing.
+   */
+  static List<String> names() throws IOException {
+    recordIfMissing();
+    try (Stream<Path> files = Files.list(directory())) {
+      return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".json")).sorted().collect(Collectors.toList());
+    }
+  }
+
+  static WorkflowExecutionHistory load(String name) throws IOException {
+    recordIfMissing();
+    return WorkflowExecutionHistory.fromJson(new String(Files.readAllBytes(directory().resolve(name)), StandardCharsets.UTF_8));
+  }
+
+  static TestWorkflowEnvironment environment() {
+    return TestWorkflowEnvironment.newInstance(new TestEnvironmentOptions.Builder()
+        .setDomain(DOMAIN)
+        .setDataConverter(JacksonDataConverter.getInstance())
+        .build());
+  }
+
+  /**
+   * Every workflow implementation of the repository.
+   */
+  static void registerWorkflows(Worker worker) {
+    worker.registerWorkflowImplementationTypes(HelloWorldImpl.class, LongWorkflowImpl.class, ShortWorkflowImpl.class, GreetingWorkflowImpl.class);
+  }
+
+  private static synchronized void recordIfMissing() throws IOException {
+    Path directory = directory();
+    if (Files.exists(directory.resolve(name("LongWorkflow", SIGNALS[SIGNALS.length - 1])))) {
+      return;
+    }
+    Files.createDirectories(directory);
+    TestWorkflowEnvironment environment = environment();
+    try {
+      Worker helloWorld = environment.newWorker(WorkflowUpdateAndQuery.TASK_LIST);
+      helloWorld.registerWorkflowImplementationTypes(HelloWorldImpl.class, LongWorkflowImpl.class);
+      helloWorld.registerActivitiesImplementations(new HelloWordActivitiesImpl(new PrintStream(ByteStreams.nullOutputStream())));
+      environment.start();
+      WorkflowClient client = environment.newWorkflowClient();
+      WorkflowOptions options = new WorkflowOptions.Builder()
+          .setTaskList(WorkflowUpdateAndQuery.TASK_LIST)
+          .setExecutionStartToCloseTimeout(EXECUTION_TIMEOUT)
+          .build();
+      for (int signals : SIGNALS) {
+        HelloWorld hello = client.newWorkflowStub(HelloWorld.class, options);
+        WorkflowExecution execution = WorkflowClient.start(hello::sayHello, "World");
+        for (int i = 0; i < signals; i++) {
+          hello.updateGreeting("Hello " + i);
+        }
+        hello.updateGreeting("Bye");
+        WorkflowStub.fromTyped(hello).getResult(Void.class);
+        write(environment, execution, name("HelloWorld", signals));
+
+        LongWorkflow longWorkflow = client.newWorkflowStub(LongWorkflow.class, options);
+        execution = WorkflowClient.start(longWorkflow::startLongProcess);
+        for (int i = 0; i < signals; i++) {
+          longWorkflow.update("data " + i);
+        }
+        longWorkflow.update("ByeData");
+        WorkflowStub.fromTyped(longWorkflow).getResult(Void.class);
+        write(environment, execution, name("LongWorkflow", signals));
+      }
+    } finally {
+      environment.close();
+    }
+  }
+
+  private static String name(String workflow, int signals) {
+    return workflow + "-" + signals + ".json";
+  }
+
+  @SneakyThrows
+  private static void write(TestWorkflowEnvironment environment, WorkflowExecution execution, String name) {
+    List<HistoryEvent> events = new ArrayList<>();
+    byte[] nextPageToken = null;
+    do {
+      GetWorkflowExecutionHistoryResponse page = environment.getWorkflowService().GetWorkflowExecutionHistory(new GetWorkflowExecutionHistoryRequest()
+          .setDomain(DOMAIN)
+          .setExecution(execution)
+          .setNextPageToken(nextPageToken));
+      events.addAll(page.getHistory().getEvents());
+      nextPageToken = page.getNextPageToken();
+    } while (nextPageToken != null && nextPageToken.length > 0);
+    Files.write(directory().resolve(name), new WorkflowExecutionHistory(events).toJson().getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,91 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import com.uber.cadence.converter.DataConverter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+import org.qwertech.cadenceplay.PayloadFormat;
+import org.qwertech.cadenceplay.StringTable;
+
+/**
+ * Decoding cost of canonicalizing strings through a {@link StringTable}. {@link #main} compares the heap retained by decoded payloads of many cached
+ * workflows with and without the table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringTableBenchmark {
+
+  private static final int WORKFLOWS = 20_000;
+  private static final int MISMATCHES = 20;
+
+  @Param({"false", "true"})
+  public boolean canonicalize;
+
+  private DataConverter converter;
+  private byte[] content;
+
+  @Setup
+  public void setUp() {
+    converter = converter(canonicalize);
+    content = converter.toData(Payloads.flkReport(100));
+  }
+
+  @Benchmark
+  public FlkReport fromData() {
+    return converter.fromData(content, FlkReport.class, FlkReport.class);
+  }
+
+  private static DataConverter converter(boolean canonicalize) {
+    return canonicalize ? JacksonDataConverter.withStringTable(new StringTable(), PayloadFormat.JSON) : JacksonDataConverter.getInstance();
+  }
+
+  /**
+   * Decodes the input of {@value #WORKFLOWS} workflows the way replay of cached workflows does and prints the heap they retain.
+   */
+  public static void main(String[] args) {
+    List<byte[]> history = new ArrayList<>();
+    for (int i = 0; i < WORKFLOWS; i++) {
+      history.add(JacksonDataConverter.getInstance().toData(Payloads.flkReport(MISMATCHES)));
+    }
+    for (boolean canonicalize : new boolean[]{false, true}) {
+      StringTable table = new StringTable();
+      DataConverter converter = canonicalize ? JacksonDataConverter.withStringTable(table, PayloadFormat.JSON) : JacksonDataConverter.getInstance();
+      long before = usedHeap();
+      List<FlkReport> cached = new ArrayList<>(WORKFLOWS);
+      for (byte[] content : history) {
+        cached.add(converter.fromData(content, FlkReport.class, FlkReport.class));
+      }
+      long retained = usedHeap() - before;
+      System.out.printf("canonicalize=%s: %d workflows retain %.1f MB, %d bytes per workflow%n",
+          canonicalize, cached.size(), retained / 1024.0 / 1024.0, retained / cached.size());
+      if (canonicalize) {
+        System.out.println("string table: " + table);
+      }
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
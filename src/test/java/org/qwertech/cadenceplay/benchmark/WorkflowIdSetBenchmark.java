@@ -0,0 +1,158 @@
+package org.qwertech.cadenceplay.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.qwertech.cadenceplay.visibility.WorkflowIdSet;
+
+/**
+ * {@link WorkflowIdSet} against {@code HashSet<String>} holding random UUID workflow ids: lookups, building a set and diffing two snapshots that differ by 1%.
+ * {@link #main} prints the heap each one retains.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class WorkflowIdSetBenchmark {
+
+  @Param({"1000000", "10000000"})
+  public int size;
+
+  private String[] ids;
+  private String[] probes;
+  private Set<String> hashSet;
+  private Set<String> nextHashSet;
+  private WorkflowIdSet idSet;
+  private WorkflowIdSet nextIdSet;
+  private int probe;
+
+  @Setup
+  public void setUp() {
+    ids = ids(size, 1);
+    String[] nextIds = ids.clone();
+    String[] started = ids(size / 100, 2);
+    System.arraycopy(started, 0, nextIds, 0, started.length);
+
+    hashSet = hashSet(ids);
+    nextHashSet = hashSet(nextIds);
+    idSet = idSet(ids);
+    nextIdSet = idSet(nextIds);
+
+    // half of the lookups hit
+    probes = new String[1 << 16];
+    String[] misses = ids(probes.length, 3);
+    for (int i = 0; i < probes.length; i++) {
+      probes[i] = i % 2 == 0 ? new String(ids[i * 7 % size]) : misses[i];
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean containsHashSet() {
+    return hashSet.contains(probes[probe++ & (probes.length - 1)]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean containsIdSet() {
+    return idSet.contains(probes[probe++ & (probes.length - 1)]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Set<String> buildHashSet() {
+    return hashSet(ids);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public WorkflowIdSet buildIdSet() {
+    return idSet(ids);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Set<String> differenceHashSet() {
+    Set<String> closed = new HashSet<>(hashSet);
+    closed.removeAll(nextHashSet);
+    return closed;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public WorkflowIdSet differenceIdSet() {
+    return idSet.difference(nextIdSet);
+  }
+
+  private static String[] ids(int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    String[] ids = new String[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+    return ids;
+  }
+
+  private static Set<String> hashSet(String[] ids) {
+    Set<String> set = new HashSet<>();
+    for (String id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  private static WorkflowIdSet idSet(String[] ids) {
+    WorkflowIdSet set = new WorkflowIdSet();
+    for (String id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  /**
+   * Run with a large heap, e.g. {@code -Xmx12g}.
+   */
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    String[] ids = ids(size, 1);
+
+    long before = usedHeap();
+    WorkflowIdSet idSet = idSet(ids);
+    long idSetBytes = usedHeap() - before;
+    System.out.printf("WorkflowIdSet: %d ids retain %.1f MB, %.1f bytes per id%n", idSet.size(), idSetBytes / 1024.0 / 1024.0, (double) idSetBytes / size);
+
+    before = usedHeap();
+    // the strings are counted too, a listing allocates fresh ones for every id
+    Set<String> hashSet = hashSet(ids(size, 1));
+    long hashSetBytes = usedHeap() - before;
+    System.out.printf("HashSet<String>: %d ids retain %.1f MB, %.1f bytes per id%n", hashSet.size(), hashSetBytes / 1024.0 / 1024.0,
+        (double) hashSetBytes / size);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
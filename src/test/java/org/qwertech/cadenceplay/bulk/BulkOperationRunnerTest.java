@@ -0,0 +1,132 @@
+package org.qwertech.cadenceplay.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.EntityNotExistsError;
+import com.uber.cadence.ServiceBusyError;
+import com.uber.cadence.WorkflowExecution;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkOperationRunnerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Set<String> applied = ConcurrentHashMap.newKeySet();
+  private final Map<String, String> requestIds = new ConcurrentHashMap<>();
+
+  @Test
+  public void appliesToEveryExecution() {
+    BulkProgress progress = runner(null).run(executions(100), record());
+
+    assertEquals(100, progress.getSucceeded());
+    assertEquals(100, applied.size());
+    assertEquals(100, progress.getLatencyMicros().getTotalCount());
+  }
+
+  @Test
+  public void retriesThrottledCallsWithSameRequestId() {
+    AtomicInteger attempts = new AtomicInteger();
+    BulkProgress progress = runner(null).run(executions(1), (service, domain, execution, requestId) -> {
+      String previous = requestIds.putIfAbsent(execution.getRunId(), requestId);
+      assertTrue(previous == null || previous.equals(requestId));
+      if (attempts.incrementAndGet() < 3) {
+        throw new ServiceBusyError();
+      }
+    });
+
+    assertEquals(1, progress.getSucceeded());
+    assertEquals(2, progress.getRetries());
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void givesUpAfterMaxAttempts() {
+    BulkProgress progress = new BulkOperationRunner(null, "domain", 2, 1000, null, 2).run(executions(1), (service, domain, execution, requestId) -> {
+      throw new ServiceBusyError();
+    });
+
+    assertEquals(1, progress.getFailed());
+    assertEquals(1, progress.getRetries());
+  }
+
+  @Test
+  public void countsMissingExecutionsAsDone() {
+    BulkProgress progress = runner(null).run(executions(3), (service, domain, execution, requestId) -> {
+      throw new EntityNotExistsError();
+    });
+
+    assertEquals(3, progress.getNotFound());
+    assertEquals(0, progress.getFailed());
+  }
+
+  @Test
+  public void resumesFromCheckpoint() {
+    Path checkpoint = folder.getRoot().toPath().resolve("signal.checkpoint");
+    WorkflowExecution[] executions = executions(20).toArray(WorkflowExecution[]::new);
+    runner(checkpoint).run(Stream.of(executions).limit(12), record());
+    applied.clear();
+
+    BulkProgress progress = runner(checkpoint).run(Stream.of(executions), record());
+
+    assertEquals(12, progress.getSkipped());
+    assertEquals(8, progress.getSucceeded());
+    assertEquals(8, applied.size());
+  }
+
+  @Test
+  public void keepsCheckpointsOfDifferentSignalsApart() {
+    Path directory = folder.getRoot().toPath();
+    Path first = BulkOperationRunner.checkpointFile(directory, "GreetingWorkflow::getGreeting", "signal", "GreetingWorkflow::unlockSignal");
+    Path second = BulkOperationRunner.checkpointFile(directory, "GreetingWorkflow::getGreeting", "signal", "GreetingWorkflow::noopSignal");
+    WorkflowExecution[] executions = executions(10).toArray(WorkflowExecution[]::new);
+    runner(first).run(Stream.of(executions), record());
+    applied.clear();
+
+    BulkProgress progress = runner(second).run(Stream.of(executions), record());
+
+    assertNotEquals(first, second);
+    assertEquals(0, progress.getSkipped());
+    assertEquals(10, progress.getSucceeded());
+    assertEquals(10, applied.size());
+    assertEquals(10, runner(first).run(Stream.of(executions), record()).getSkipped());
+  }
+
+  @Test
+  public void boundsConcurrency() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    runner(null).run(executions(50), (service, domain, execution, requestId) -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      Thread.sleep(2);
+      inFlight.decrementAndGet();
+    });
+
+    assertTrue(maxInFlight.get() <= 4);
+  }
+
+  private BulkOperationRunner runner(Path checkpoint) {
+    return new BulkOperationRunner(null, "domain", 4, 1000, checkpoint);
+  }
+
+  private BulkOperation record() {
+    return (service, domain, execution, requestId) -> applied.add(execution.getRunId());
+  }
+
+  private static Stream<WorkflowExecution> executions(int count) {
+    return IntStream.range(0, count).mapToObj(i -> new WorkflowExecution().setWorkflowId("wf-" + i).setRunId(UUID.randomUUID().toString()));
+  }
+}
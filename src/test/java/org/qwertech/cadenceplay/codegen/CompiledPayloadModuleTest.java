@@ -0,0 +1,75 @@
+package org.qwertech.cadenceplay.codegen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import org.junit.Test;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.FlkReport;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.Mismatch;
+import org.qwertech.cadenceplay.ExecuteWorkflowSimple.OsagoSubjectObjectCheckRequest;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+public class CompiledPayloadModuleTest {
+
+  private final ObjectMapper compiled = JacksonDataConverter.getDefaultJackson();
+  private final ObjectMapper reflective = new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+
+  @Test
+  public void usesGeneratedCodecs() throws IOException {
+    assertTrue(compiled.getSerializerProviderInstance().findValueSerializer(Mismatch.class) instanceof PayloadSerializer);
+    assertTrue(compiled.readerFor(Mismatch.class).readValue("{}") instanceof Mismatch);
+  }
+
+  @Test
+  public void writesSameJsonAsReflectiveJackson() throws IOException {
+    FlkReport report = report();
+    OsagoSubjectObjectCheckRequest request = new OsagoSubjectObjectCheckRequest();
+    request.setInsurerId("insurer");
+    request.setActualizationDate(OffsetDateTime.now());
+
+    assertArrayEquals(reflective.writeValueAsBytes(report), compiled.writeValueAsBytes(report));
+    assertArrayEquals(reflective.writeValueAsBytes(new FlkReport()), compiled.writeValueAsBytes(new FlkReport()));
+    assertArrayEquals(reflective.writeValueAsBytes(request), compiled.writeValueAsBytes(request));
+  }
+
+  @Test
+  public void readsJsonWrittenByReflectiveJackson() throws IOException {
+    FlkReport report = report();
+
+    assertEquals(report, compiled.readValue(reflective.writeValueAsBytes(report), FlkReport.class));
+  }
+
+  @Test
+  public void readsNullsAndMissingFields() throws IOException {
+    Mismatch mismatch = compiled.readValue("{\"code\":null,\"isCritical\":null}", Mismatch.class);
+
+    assertEquals(new Mismatch(), mismatch);
+  }
+
+  @Test(expected = UnrecognizedPropertyException.class)
+  public void failsOnUnknownPropertiesLikeJackson() throws IOException {
+    compiled.readValue("{\"unknown\":1}", Mismatch.class);
+  }
+
+  private static FlkReport report() {
+    FlkReport report = new FlkReport();
+    report.setRequestId(UUID.randomUUID());
+    report.setBusinessObjectId("business");
+    for (int i = 0; i < 3; i++) {
+      Mismatch mismatch = new Mismatch();
+      mismatch.setCode("FLK-" + i);
+      mismatch.setMessage("message \"" + i + "\"");
+      mismatch.setIsCritical(i % 2 == 0);
+      report.getMismatches().add(mismatch);
+    }
+    return report;
+  }
+}
@@ -0,0 +1,150 @@
+package org.qwertech.cadenceplay.converter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import com.google.common.primitives.Bytes;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.DataConverterException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+public class ClaimCheckDataConverterTest {
+
+  private static final String LARGE = Strings.repeat("mismatch ", 1000);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final DataConverter jackson = JacksonDataConverter.getInstance();
+  private final AtomicInteger reads = new AtomicInteger();
+  private Path root;
+  private BlobStore store;
+
+  @Before
+  public void setUp() {
+    root = folder.getRoot().toPath();
+    FileSystemBlobStore files = new FileSystemBlobStore(root);
+    store = new BlobStore() {
+      @Override
+      public boolean contains(String key) {
+        return files.contains(key);
+      }
+
+      @Override
+      public void put(String key, byte[] blob) {
+        files.put(key, blob);
+      }
+
+      @Override
+      public byte[] get(String key) {
+        reads.incrementAndGet();
+        return files.get(key);
+      }
+    };
+  }
+
+  @Test
+  public void offloadsLargePayloads() {
+    ClaimCheckDataConverter converter = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024);
+
+    byte[] content = converter.toData(LARGE, 42);
+
+    assertTrue(ClaimCheckDataConverter.isReference(content));
+    assertTrue(content.length < 100);
+    assertArrayEquals(new Object[]{LARGE, 42}, converter.fromDataArray(content, String.class, int.class));
+  }
+
+  @Test
+  public void keepsSmallPayloadsInline() {
+    ClaimCheckDataConverter converter = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024);
+
+    byte[] content = converter.toData("small");
+
+    assertArrayEquals(jackson.toData("small"), content);
+    assertEquals("small", converter.fromData(content, String.class, String.class));
+  }
+
+  @Test
+  public void storesIdenticalPayloadsOnce() throws IOException {
+    ClaimCheckDataConverter converter = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024);
+
+    byte[] first = converter.toData(LARGE);
+    byte[] second = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024).toData(LARGE);
+
+    assertArrayEquals(first, second);
+    try (Stream<Path> files = Files.walk(root)) {
+      assertEquals(1, files.filter(Files::isRegularFile).count());
+    }
+  }
+
+  @Test
+  public void servesRepeatedReadsFromCache() {
+    byte[] content = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024).toData(LARGE);
+    ClaimCheckDataConverter replaying = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(LARGE, replaying.fromData(content, String.class, String.class));
+    }
+    assertEquals(1, reads.get());
+  }
+
+  @Test
+  public void doesNotCacheBlobsBeyondCacheSize() {
+    byte[] content = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024).toData(LARGE);
+    ClaimCheckDataConverter replaying = new ClaimCheckDataConverter(jackson, store, 1024, 1024);
+
+    replaying.fromData(content, String.class, String.class);
+    replaying.fromData(content, String.class, String.class);
+
+    assertEquals(2, reads.get());
+  }
+
+  @Test(expected = DataConverterException.class)
+  public void failsOnMissingBlob() throws IOException {
+    byte[] content = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024).toData(LARGE);
+    try (Stream<Path> files = Files.walk(root)) {
+      files.filter(Files::isRegularFile).forEach(path -> path.toFile().delete());
+    }
+
+    new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024).fromData(content, String.class, String.class);
+  }
+
+  @Test
+  public void rejectsReferencesThatAreNotHashes() {
+    ClaimCheckDataConverter converter = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024);
+    String hash = Strings.repeat("ab", 32);
+
+    for (String key : new String[]{"a", "../../etc/passwd", hash.toUpperCase(), hash + "0", "../" + hash.substring(3)}) {
+      byte[] content = Bytes.concat(new byte[]{0, 'C', 'K', 1}, key.getBytes(StandardCharsets.US_ASCII));
+      try {
+        converter.fromData(content, String.class, String.class);
+        fail("key " + key + " should be rejected");
+      } catch (DataConverterException e) {
+        assertEquals(0, reads.get());
+      }
+    }
+  }
+
+  @Test
+  public void readsInlinePayloadsWrittenWithoutClaimCheck() {
+    ClaimCheckDataConverter converter = new ClaimCheckDataConverter(jackson, store, 1024, 1024 * 1024);
+
+    assertFalse(ClaimCheckDataConverter.isReference(jackson.toData(LARGE)));
+    assertEquals(LARGE, converter.fromData(jackson.toData(LARGE), String.class, String.class));
+    assertEquals(0, reads.get());
+  }
+}
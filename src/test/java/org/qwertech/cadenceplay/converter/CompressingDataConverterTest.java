@@ -0,0 +1,99 @@
+package org.qwertech.cadenceplay.converter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.DataConverterException;
+import org.junit.Test;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+public class CompressingDataConverterTest {
+
+  private final DataConverter jackson = JacksonDataConverter.getInstance();
+  private final CompressingDataConverter converter = new CompressingDataConverter(jackson, 1024);
+
+  @Test
+  public void compressesPayloadsAboveThreshold() {
+    String value = Strings.repeat("mismatch ", 1000);
+
+    byte[] content = converter.toData(value);
+
+    assertTrue(CompressingDataConverter.isCompressed(content));
+    assertTrue(content.length < value.length());
+    assertEquals(value, converter.fromData(content, String.class, String.class));
+    assertEquals(1, converter.getStats().getCompressed());
+    assertEquals(1, converter.getStats().getDecompressed());
+  }
+
+  @Test
+  public void compressesMultipleArguments() {
+    String value = Strings.repeat("mismatch ", 1000);
+
+    byte[] content = converter.toData(value, 42);
+
+    assertTrue(CompressingDataConverter.isCompressed(content));
+    assertArrayEquals(new Object[]{value, 42}, converter.fromDataArray(content, String.class, int.class));
+  }
+
+  @Test
+  public void keepsSmallPayloadsUncompressed() {
+    byte[] content = converter.toData("small");
+
+    assertArrayEquals(jackson.toData("small"), content);
+    assertEquals(1, converter.getStats().getPayloads());
+    assertEquals(0, converter.getStats().getCompressed());
+  }
+
+  @Test
+  public void keepsIncompressiblePayloadsUncompressed() {
+    CompressingDataConverter converter = new CompressingDataConverter(jackson, 16);
+
+    byte[] content = converter.toData("abcdefghijklmnopqrstuvwxyz");
+
+    assertFalse(CompressingDataConverter.isCompressed(content));
+    assertEquals(1, converter.getStats().getIncompressible());
+  }
+
+  @Test
+  public void readsLegacyUncompressedPayloads() {
+    String value = Strings.repeat("mismatch ", 1000);
+
+    assertEquals(value, converter.fromData(jackson.toData(value), String.class, String.class));
+    assertArrayEquals(new Object[]{"order", 7}, converter.fromDataArray(jackson.toData("order", 7), String.class, int.class));
+    assertEquals(0, converter.getStats().getDecompressed());
+  }
+
+  @Test
+  public void rejectsDeclaredLengthAboveLimit() {
+    byte[] content = new CompressingDataConverter(jackson, 1024, 1000).toData(Strings.repeat("mismatch ", 1000));
+
+    assertRejected(new CompressingDataConverter(jackson, 1024, 1000), content);
+    content[4] = (byte) 0x80;
+    assertRejected(converter, content);
+  }
+
+  @Test
+  public void rejectsLengthNotMatchingData() {
+    byte[] content = converter.toData(Strings.repeat("mismatch ", 1000));
+    int length = (content[6] & 0xFF) << 8 | content[7] & 0xFF;
+
+    content[7] = (byte) (length - 1);
+    assertRejected(converter, content);
+    content[7] = (byte) (length + 1);
+    assertRejected(converter, content);
+  }
+
+  private static void assertRejected(DataConverter converter, byte[] content) {
+    try {
+      converter.fromData(content, String.class, String.class);
+      fail("the frame should be rejected");
+    } catch (DataConverterException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package org.qwertech.cadenceplay.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.StartWorkflowExecutionRequest;
+import com.uber.cadence.StartWorkflowExecutionResponse;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.junit.After;
+import org.junit.Test;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+public class AsyncWorkflowStarterTest {
+
+  private static final WorkflowOptions OPTIONS = new WorkflowOptions.Builder()
+      .setTaskList("tasks")
+      .setExecutionStartToCloseTimeout(Duration.ofHours(1))
+      .build();
+
+  private final ScheduledExecutorService frontend = Executors.newScheduledThreadPool(4);
+  private final List<StartWorkflowExecutionRequest> requests = new CopyOnWriteArrayList<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    frontend.shutdownNow();
+  }
+
+  @Test
+  public void startsFromTemplateWithinWindow() {
+    try (AsyncWorkflowStarter starter = new AsyncWorkflowStarter(service(true), "domain", "GeneratedWorkflow::process", OPTIONS,
+        JacksonDataConverter.getInstance(), 8, "World")) {
+      List<CompletableFuture<WorkflowExecution>> starts = IntStream.range(0, 100).mapToObj(i -> starter.start("wf-" + i)).collect(Collectors.toList());
+
+      List<WorkflowExecution> executions = starts.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+      assertEquals("wf-42", executions.get(42).getWorkflowId());
+      assertEquals("run-wf-42", executions.get(42).getRunId());
+    }
+    assertEquals(100, requests.size());
+    assertTrue(maxInFlight.get() <= 8);
+    StartWorkflowExecutionRequest request = requests.get(0);
+    assertEquals("tasks", request.getTaskList().getName());
+    assertEquals(3600, request.getExecutionStartToCloseTimeoutSeconds());
+    assertSame(request.getWorkflowType(), requests.get(1).getWorkflowType());
+    assertEquals("\"World\"", new String(request.bufferForInput().array()));
+  }
+
+  @Test
+  public void fallsBackToBlockingStarts() {
+    try (AsyncWorkflowStarter starter = new AsyncWorkflowStarter(service(false), "domain", "GeneratedWorkflow::process", OPTIONS,
+        JacksonDataConverter.getInstance(), 4)) {
+      List<CompletableFuture<WorkflowExecution>> starts = IntStream.range(0, 20).mapToObj(i -> starter.start("wf-" + i)).collect(Collectors.toList());
+
+      assertEquals("run-wf-7", starts.get(7).join().getRunId());
+    }
+    assertTrue(maxInFlight.get() <= 4);
+  }
+
+  private IWorkflowService service(boolean async) {
+    return (IWorkflowService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{IWorkflowService.class}, (proxy, method, args) -> {
+      if (!method.getName().equals("StartWorkflowExecution")) {
+        throw new UnsupportedOperationException(method.getName());
+      }
+      StartWorkflowExecutionRequest request = (StartWorkflowExecutionRequest) args[0];
+      StartWorkflowExecutionResponse response = new StartWorkflowExecutionResponse().setRunId("run-" + request.getWorkflowId());
+      if (args.length == 1) {
+        enter(request);
+        Thread.sleep(1);
+        inFlight.decrementAndGet();
+        return response;
+      }
+      if (!async) {
+        throw new UnsupportedOperationException("not implemented");
+      }
+      enter(request);
+      @SuppressWarnings("unchecked")
+      AsyncMethodCallback<StartWorkflowExecutionResponse> callback = (AsyncMethodCallback<StartWorkflowExecutionResponse>) args[1];
+      frontend.schedule(() -> {
+        inFlight.decrementAndGet();
+        callback.onComplete(response);
+      }, 1, TimeUnit.MILLISECONDS);
+      return null;
+    });
+  }
+
+  private void enter(StartWorkflowExecutionRequest request) {
+    requests.add(request);
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+  }
+}
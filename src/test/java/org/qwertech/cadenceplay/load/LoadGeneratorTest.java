@@ -0,0 +1,93 @@
+package org.qwertech.cadenceplay.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uber.cadence.WorkflowExecution;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LoadGeneratorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final ScheduledExecutorService service = Executors.newScheduledThreadPool(4);
+
+  @After
+  public void tearDown() {
+    service.shutdownNow();
+  }
+
+  @Test
+  public void computesRampSchedule() {
+    LoadProfile profile = new LoadProfile(100, 300, 10, TimeUnit.SECONDS);
+
+    assertEquals(2000, profile.getTotalStarts());
+    assertEquals(0, profile.intendedOffsetNanos(0));
+    assertEquals(TimeUnit.SECONDS.toNanos(10), profile.intendedOffsetNanos(2000), TimeUnit.MILLISECONDS.toNanos(1));
+    // the first half of the ramp issues 750 of the 2000 starts
+    assertEquals(TimeUnit.SECONDS.toNanos(5), profile.intendedOffsetNanos(750), TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  @Test
+  public void startsAtTargetRate() {
+    LoadResult result = new LoadGenerator(10, 1, TimeUnit.SECONDS).run(LoadProfile.fixed(500, 1, TimeUnit.SECONDS), this::acknowledgeAfter1Ms, null);
+
+    assertEquals(500, result.getStarted());
+    // starts are never issued ahead of schedule, a loaded machine can only make the run slower
+    assertTrue("rate " + result.getAchievedRate(), result.getAchievedRate() <= 505);
+    assertTrue("rate " + result.getAchievedRate(), result.getAchievedRate() > 100);
+    assertTrue(result.getServiceTime().getValueAtPercentile(50) >= 1000);
+  }
+
+  @Test
+  public void chargesQueueingDelayToStartLatency() {
+    // one start in flight at a time, each taking 20 ms, can't keep up with 200 per second
+    LoadResult result = new LoadGenerator(1, 1, TimeUnit.SECONDS).run(LoadProfile.fixed(200, 200, TimeUnit.MILLISECONDS), i -> {
+      CompletableFuture<WorkflowExecution> start = new CompletableFuture<>();
+      service.schedule(() -> start.complete(new WorkflowExecution()), 20, TimeUnit.MILLISECONDS);
+      return start;
+    }, null);
+
+    assertEquals(40, result.getStarted());
+    // the last starts wait for at least 39 * 20 ms of earlier ones while due within 200 ms, however fast the machine is
+    assertTrue(result.getServiceTime().getValueAtPercentile(50) >= 20_000);
+    assertTrue(result.getStartLatency().getValueAtPercentile(99) > 500_000);
+    assertTrue(result.getStartLatency().getValueAtPercentile(99) > result.getServiceTime().getValueAtPercentile(99));
+  }
+
+  @Test
+  public void measuresEndToEndAndWritesResults() throws Exception {
+    LoadResult result = new LoadGenerator(10, 1, TimeUnit.SECONDS).run(LoadProfile.fixed(100, 200, TimeUnit.MILLISECONDS), this::acknowledgeAfter1Ms,
+        execution -> {
+          CompletableFuture<Object> completion = new CompletableFuture<>();
+          service.schedule(() -> completion.complete("done"), 5, TimeUnit.MILLISECONDS);
+          return completion;
+        });
+    Path file = folder.getRoot().toPath().resolve("load.json");
+
+    result.writeJson(file);
+
+    assertEquals(20, result.getCompleted());
+    JsonNode json = new ObjectMapper().readTree(file.toFile());
+    assertEquals(20, json.get("started").asLong());
+    assertEquals(20, json.get("endToEndLatencyMicros").get("count").asLong());
+    assertTrue(json.get("endToEndLatencyMicros").get("p50").asLong() >= 5000);
+  }
+
+  private CompletableFuture<WorkflowExecution> acknowledgeAfter1Ms(long i) {
+    CompletableFuture<WorkflowExecution> start = new CompletableFuture<>();
+    service.schedule(() -> start.complete(new WorkflowExecution().setWorkflowId("wf-" + i)), 1, TimeUnit.MILLISECONDS);
+    return start;
+  }
+}
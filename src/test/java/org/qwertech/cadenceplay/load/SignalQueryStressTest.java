@@ -0,0 +1,88 @@
+package org.qwertech.cadenceplay.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.qwertech.cadenceplay.load.StressResult.Operation;
+
+public class SignalQueryStressTest {
+
+  @Test
+  public void mixesSignalsAndQueriesOverAllWorkflows() {
+    List<AtomicInteger> workflows = Arrays.asList(new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    AtomicInteger queries = new AtomicInteger();
+
+    StressResult result = new SignalQueryStress(4, 0.25, 300, 1000, TimeUnit.MILLISECONDS)
+        .run(workflows, AtomicInteger::incrementAndGet, workflow -> queries.incrementAndGet());
+
+    long signals = result.getSucceeded(Operation.SIGNAL);
+    assertEquals(signals, workflows.stream().mapToInt(AtomicInteger::get).sum());
+    assertEquals(queries.get(), result.getSucceeded(Operation.QUERY));
+    double ratio = (double) queries.get() / (signals + queries.get());
+    assertTrue("query ratio " + ratio, ratio > 0.2 && ratio < 0.3);
+    workflows.forEach(workflow -> assertTrue(workflow.get() > 0));
+    assertTrue(result.getThroughput(Operation.SIGNAL) > 0);
+    assertEquals(signals, result.getLatencyMicros(Operation.SIGNAL).getTotalCount());
+  }
+
+  @Test
+  public void countsErrorsByTypeAndTimeouts() {
+    StressResult result = new SignalQueryStress(2, 0.5, 200, 1000, TimeUnit.MILLISECONDS).run(Collections.singletonList("wf"),
+        workflow -> {
+          throw new IllegalStateException(new IllegalArgumentException());
+        },
+        workflow -> {
+          throw new RuntimeException(new TimeoutException());
+        });
+
+    assertEquals(0, result.getSucceeded(Operation.SIGNAL));
+    assertEquals(0, result.getSucceeded(Operation.QUERY));
+    assertTrue(result.getErrors(Operation.SIGNAL).get("IllegalStateException/IllegalArgumentException") > 0);
+    assertEquals(1, result.getErrors(Operation.SIGNAL).size());
+    assertTrue(result.getErrors(Operation.QUERY).isEmpty());
+    assertTrue(result.getTimeouts(Operation.QUERY) > 0);
+  }
+
+  @Test
+  public void countsSlowAndHungCallsAsTimeouts() {
+    StressResult result = new SignalQueryStress(2, 1, 100, 50, TimeUnit.MILLISECONDS).run(Collections.singletonList("wf"),
+        workflow -> {
+        },
+        this::hang);
+
+    assertEquals(0, result.getSucceeded(Operation.QUERY));
+    // both threads are stuck in their first call when the run gives up on them
+    assertEquals(2, result.getTimeouts(Operation.QUERY));
+  }
+
+  @Test
+  public void countsAbandonedCallsOnce() {
+    StressResult result = new SignalQueryStress(2, 1, 100, 50, TimeUnit.MILLISECONDS).run(Collections.singletonList("wf"),
+        workflow -> {
+        },
+        workflow -> {
+          try {
+            hang(workflow);
+          } catch (Exception e) {
+            // like a client wrapping the interruption
+            throw new IllegalStateException(e);
+          }
+        });
+
+    assertEquals(2, result.getTimeouts(Operation.QUERY));
+    assertTrue(result.getErrors(Operation.QUERY).isEmpty());
+  }
+
+  @SneakyThrows
+  private void hang(String workflow) {
+    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+  }
+}
@@ -0,0 +1,68 @@
+package org.qwertech.cadenceplay.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+
+public class TaskListShardsTest {
+
+  @Test
+  public void keepsPlainNameForSingleShard() {
+    TaskListShards shards = new TaskListShards("GeneratedWorkflowsTaskList", 1);
+
+    assertEquals("GeneratedWorkflowsTaskList", shards.taskListOf("any"));
+    assertEquals(Arrays.asList("GeneratedWorkflowsTaskList"), shards.all());
+  }
+
+  @Test
+  public void routesConsistentlyAndEvenly() {
+    TaskListShards shards = new TaskListShards("tasks", 4);
+    Map<String, Integer> counts = new HashMap<>();
+
+    for (int i = 0; i < 40_000; i++) {
+      String workflowId = UUID.randomUUID().toString();
+      assertEquals(shards.taskListOf(workflowId), shards.taskListOf(workflowId));
+      counts.merge(shards.taskListOf(workflowId), 1, Integer::sum);
+    }
+
+    assertEquals(new HashSet<>(shards.all()), counts.keySet());
+    counts.values().forEach(count -> assertTrue(count > 9_000 && count < 11_000));
+  }
+
+  @Test
+  public void movesFewIdsWhenShardIsAdded() {
+    TaskListShards four = new TaskListShards("tasks", 4);
+    TaskListShards five = new TaskListShards("tasks", 5);
+    int moved = 0;
+
+    for (int i = 0; i < 10_000; i++) {
+      String workflowId = "wf-" + i;
+      if (!four.taskListOf(workflowId).equals(five.taskListOf(workflowId))) {
+        moved++;
+      }
+    }
+
+    assertTrue(moved < 2_500);
+  }
+
+  @Test
+  public void dealsShardsToProcesses() {
+    TaskListShards shards = new TaskListShards("tasks", 5);
+    Set<String> covered = new HashSet<>();
+
+    for (int process = 0; process < 2; process++) {
+      covered.addAll(shards.assignedTo(process, 2));
+    }
+
+    assertEquals(Arrays.asList("tasks-0", "tasks-2", "tasks-4"), shards.assignedTo(0, 2));
+    assertEquals(new HashSet<>(shards.all()), covered);
+    assertEquals(Arrays.asList("tasks-1"), new TaskListShards("tasks", 2).assignedTo(3, 4));
+  }
+}
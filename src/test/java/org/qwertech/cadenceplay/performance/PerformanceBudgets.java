@@ -0,0 +1,43 @@
+package org.qwertech.cadenceplay.performance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Budgets from {@code performance-budgets.properties}, overridden by {@code -Dperf.<key>} system properties.
+ */
+final class PerformanceBudgets {
+
+  private static final String RESOURCE = "/performance-budgets.properties";
+
+  private final Properties properties = new Properties();
+
+  PerformanceBudgets() {
+    try (InputStream in = PerformanceBudgets.class.getResourceAsStream(RESOURCE)) {
+      if (in == null) {
+        throw new IllegalStateException(RESOURCE + " is not on the classpath");
+      }
+      properties.load(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  double get(String key) {
+    String value = System.getProperty("perf." + key, properties.getProperty(key));
+    if (value == null) {
+      throw new IllegalArgumentException("No performance budget " + key);
+    }
+    return Double.parseDouble(value);
+  }
+
+  int getInt(String key) {
+    return (int) get(key);
+  }
+
+  boolean has(String key) {
+    return System.getProperty("perf." + key) != null || properties.containsKey(key);
+  }
+}
@@ -0,0 +1,114 @@
+package org.qwertech.cadenceplay.performance;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.qwertech.cadenceplay.tuning.WorkflowThreadMonitor;
+
+/**
+ * Measurements of one scenario: completed workflows per second, signal and query latency, and the peak of workflow threads and of all JVM threads,
+ * sampled while the scenario runs.
+ */
+@Slf4j
+final class PerformanceRun implements AutoCloseable {
+
+  private static final long SAMPLE_INTERVAL_MILLIS = 20;
+
+  private final String scenario;
+  private final Histogram signalMicros = new ConcurrentHistogram(3);
+  private final Histogram queryMicros = new ConcurrentHistogram(3);
+  private final LongAccumulator peakWorkflowThreads = new LongAccumulator(Math::max, 0);
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final WorkflowThreadMonitor monitor = new WorkflowThreadMonitor(Integer.MAX_VALUE);
+  private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+  private final long startNanos;
+  private long elapsedNanos;
+  private int workflows;
+
+  PerformanceRun(String scenario) {
+    this.scenario = scenario;
+    threads.resetPeakThreadCount();
+    sampler.scheduleAtFixedRate(() -> peakWorkflowThreads.accumulate(monitor.scan().getTaken()), 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    startNanos = System.nanoTime();
+  }
+
+  @SneakyThrows
+  void signal(Runnable call) {
+    timed(signalMicros, () -> {
+      call.run();
+      return null;
+    });
+  }
+
+  @SneakyThrows
+  <T> T query(Callable<T> call) {
+    return timed(queryMicros, call);
+  }
+
+  void finished(int workflows) {
+    this.elapsedNanos = System.nanoTime() - startNanos;
+    this.workflows = workflows;
+  }
+
+  double getWorkflowsPerSecond() {
+    return workflows * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Logs the results and fails on the first budget of {@code <scenario>.*} they exceed.
+   */
+  void assertWithin(PerformanceBudgets budgets) {
+    log.info("[assertWithin] {}: {} workflows in {}ms, {} workflows/s, signal {}, query {}, peak {} workflow threads, peak {} JVM threads", scenario,
+        workflows, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", getWorkflowsPerSecond()), summary(signalMicros),
+        summary(queryMicros), peakWorkflowThreads.get(), threads.getPeakThreadCount());
+    double minWorkflowsPerSecond = budgets.get(scenario + ".minWorkflowsPerSecond");
+    assertTrue(scenario + ": " + getWorkflowsPerSecond() + " workflows/s is under the budget of " + minWorkflowsPerSecond,
+        getWorkflowsPerSecond() >= minWorkflowsPerSecond);
+    assertP99(budgets, "maxSignalP99Millis", signalMicros);
+    assertP99(budgets, "maxQueryP99Millis", queryMicros);
+    int maxWorkflowThreads = budgets.getInt(scenario + ".maxWorkflowThreads");
+    assertTrue(scenario + ": " + peakWorkflowThreads.get() + " workflow threads are over the budget of " + maxWorkflowThreads,
+        peakWorkflowThreads.get() <= maxWorkflowThreads);
+  }
+
+  private void assertP99(PerformanceBudgets budgets, String budget, Histogram micros) {
+    String key = scenario + "." + budget;
+    if (micros.getTotalCount() == 0 || !budgets.has(key)) {
+      return;
+    }
+    double p99Millis = micros.getValueAtPercentile(99) / 1000.0;
+    assertTrue(scenario + ": p99 of " + p99Millis + "ms is over " + key + " of " + budgets.get(key) + "ms", p99Millis <= budgets.get(key));
+  }
+
+  private static String summary(Histogram micros) {
+    if (micros.getTotalCount() == 0) {
+      return "-";
+    }
+    return String.format("p50 %.1fms p99 %.1fms max %.1fms of %d", micros.getValueAtPercentile(50) / 1000.0, micros.getValueAtPercentile(99) / 1000.0,
+        micros.getMaxValue() / 1000.0, micros.getTotalCount());
+  }
+
+  private static <T> T timed(Histogram micros, Callable<T> call) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return call.call();
+    } finally {
+      micros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+  }
+
+  @Override
+  public void close() {
+    sampler.shutdownNow();
+  }
+}
@@ -0,0 +1,219 @@
+package org.qwertech.cadenceplay.performance;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.io.ByteStreams;
+import com.uber.cadence.client.WorkflowClient;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.client.WorkflowStub;
+import com.uber.cadence.testing.TestEnvironmentOptions;
+import com.uber.cadence.testing.TestWorkflowEnvironment;
+import com.uber.cadence.worker.Worker;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qwertech.cadenceplay.GettingStarted.HelloWorld;
+import org.qwertech.cadenceplay.GettingStarted.HelloWorldImpl;
+import org.qwertech.cadenceplay.GettingStartedActivities.HelloWordActivitiesImpl;
+import org.qwertech.cadenceplay.HelloAwaitingActivity;
+import org.qwertech.cadenceplay.HelloAwaitingActivity.GreetingActivitiesImpl;
+import org.qwertech.cadenceplay.HelloAwaitingActivity.GreetingWorkflow;
+import org.qwertech.cadenceplay.HelloAwaitingActivity.GreetingWorkflowImpl;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ConnectorActivityImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.LongWorkflow;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.LongWorkflowImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ShortWorkflow;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ShortWorkflowImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.SomeState;
+import org.qwertech.cadenceplay.retryoptions.HelloAsyncLambdaTimeLimit.PaymentActivity;
+import org.qwertech.cadenceplay.retryoptions.HelloAsyncLambdaTimeLimit.PaymentWorkflow;
+import org.qwertech.cadenceplay.retryoptions.HelloAsyncLambdaTimeLimit.PaymentWorkflowImpl;
+
+/**
+ * Runs every sample workflow at volume on the in-memory {@link TestWorkflowEnvironment}, no Cadence server needed, and fails when a scenario misses a
+ * budget of {@code performance-budgets.properties}. {@code workflows} workflows per scenario are driven by {@value #CLIENTS} client threads: each one is
+ * started and gets {@code signals} signals, each followed by a query; results are awaited only after all of them got their signals.
+ */
+public class SampleWorkflowsPerformanceTest {
+
+  private static final int CLIENTS = 16;
+  private static final String PAYMENT_TASK_LIST = "PaymentTaskList";
+  private static final int PAYMENT_FAILURES = 3;
+
+  private final PerformanceBudgets budgets = new PerformanceBudgets();
+  private final int workflows = budgets.getInt("workflows");
+  private final int signals = budgets.getInt("signals");
+  private TestWorkflowEnvironment environment;
+  private WorkflowClient client;
+  private ExecutorService clients;
+
+  @Before
+  public void setUp() {
+    environment = TestWorkflowEnvironment.newInstance(new TestEnvironmentOptions.Builder()
+        .setDataConverter(JacksonDataConverter.getInstance())
+        .build());
+    client = environment.newWorkflowClient();
+
+    Worker helloWorld = environment.newWorker(WorkflowUpdateAndQuery.TASK_LIST);
+    helloWorld.registerWorkflowImplementationTypes(HelloWorldImpl.class, LongWorkflowImpl.class, ShortWorkflowImpl.class);
+    helloWorld.registerActivitiesImplementations(new HelloWordActivitiesImpl(new PrintStream(ByteStreams.nullOutputStream())),
+        new ConnectorActivityImpl(client));
+    Worker greeting = environment.newWorker(HelloAwaitingActivity.TASK_LIST);
+    greeting.registerWorkflowImplementationTypes(GreetingWorkflowImpl.class);
+    greeting.registerActivitiesImplementations(new GreetingActivitiesImpl());
+    Worker payment = environment.newWorker(PAYMENT_TASK_LIST);
+    payment.registerWorkflowImplementationTypes(PaymentWorkflowImpl.class);
+    payment.registerActivitiesImplementations(new FlakyPaymentActivity());
+    environment.start();
+
+    clients = Executors.newFixedThreadPool(CLIENTS);
+  }
+
+  @After
+  public void tearDown() {
+    clients.shutdownNow();
+    environment.close();
+  }
+
+  @Test
+  public void helloWorldSignalLoops() throws Exception {
+    try (PerformanceRun run = new PerformanceRun("helloWorld")) {
+      runAll(run, i -> {
+        HelloWorld hello = client.newWorkflowStub(HelloWorld.class, options(WorkflowUpdateAndQuery.TASK_LIST));
+        WorkflowClient.start(hello::sayHello, "World " + i);
+        for (int signal = 0; signal < signals; signal++) {
+          String greeting = "Hello " + signal;
+          run.signal(() -> hello.updateGreeting(greeting));
+          run.query(hello::getCount);
+        }
+        run.signal(() -> hello.updateGreeting("Bye"));
+        return () -> WorkflowStub.fromTyped(hello).getResult(Void.class);
+      });
+      run.assertWithin(budgets);
+    }
+  }
+
+  @Test
+  public void awaitingGreetings() throws Exception {
+    try (PerformanceRun run = new PerformanceRun("awaitingGreeting")) {
+      runAll(run, i -> {
+        GreetingWorkflow greeting = client.newWorkflowStub(GreetingWorkflow.class);
+        WorkflowClient.start(greeting::getGreeting, i, "World");
+        for (int signal = 0; signal < signals; signal++) {
+          run.signal(greeting::noopSignal);
+          assertEquals(i, (int) run.query(greeting::queryOrderId));
+        }
+        run.signal(greeting::unlockSignal);
+        return () -> {
+          assertEquals("Hello World!", WorkflowStub.fromTyped(greeting).getResult(String.class));
+          return null;
+        };
+      });
+      run.assertWithin(budgets);
+    }
+  }
+
+  @Test
+  public void longAndShortQueryWorkflows() throws Exception {
+    try (PerformanceRun run = new PerformanceRun("longAndShortQuery")) {
+      runAll(run, i -> {
+        String longWorkflowId = "long-" + i + "-" + System.nanoTime();
+        LongWorkflow longWorkflow = client.newWorkflowStub(LongWorkflow.class, new WorkflowOptions.Builder(options(WorkflowUpdateAndQuery.TASK_LIST))
+            .setWorkflowId(longWorkflowId)
+            .build());
+        WorkflowClient.start(longWorkflow::startLongProcess);
+        for (int signal = 0; signal < signals; signal++) {
+          String data = "data " + signal;
+          run.signal(() -> longWorkflow.update(data));
+          assertEquals(data, run.query(longWorkflow::getState).getSomeData());
+        }
+        ShortWorkflow shortWorkflow = client.newWorkflowStub(ShortWorkflow.class, options(WorkflowUpdateAndQuery.TASK_LIST));
+        WorkflowClient.start(shortWorkflow::getStateFromLong, longWorkflowId);
+        return () -> {
+          assertEquals("123", WorkflowStub.fromTyped(shortWorkflow).getResult(SomeState.class).getSomeData());
+          run.signal(() -> longWorkflow.update("ByeData"));
+          return WorkflowStub.fromTyped(longWorkflow).getResult(Void.class);
+        };
+      });
+      run.assertWithin(budgets);
+    }
+  }
+
+  @Test
+  public void retryingPayments() throws Exception {
+    try (PerformanceRun run = new PerformanceRun("payment")) {
+      runAll(run, i -> {
+        PaymentWorkflow payment = client.newWorkflowStub(PaymentWorkflow.class, options(PAYMENT_TASK_LIST));
+        String account = "account-" + i;
+        WorkflowClient.start(payment::payment, "100", account);
+        return () -> {
+          assertEquals("PAYMENT OF AMOUNT 100 TO ACCOUNT " + account + " DONE", WorkflowStub.fromTyped(payment).getResult(String.class));
+          return null;
+        };
+      });
+      run.assertWithin(budgets);
+    }
+  }
+
+  /**
+   * Starts and signals all workflows, then awaits all results.
+   *
+   * @param workflow starts and signals the workflow with the given number, returns what awaits its result
+   */
+  private void runAll(PerformanceRun run, IntFunction<Callable<?>> workflow) throws Exception {
+    List<Future<Callable<?>>> started = new ArrayList<>();
+    for (int i = 0; i < workflows; i++) {
+      int id = i;
+      started.add(clients.submit(() -> workflow.apply(id)));
+    }
+    List<Callable<?>> results = new ArrayList<>();
+    for (Future<Callable<?>> future : started) {
+      results.add(future.get());
+    }
+    List<Future<?>> completed = new ArrayList<>();
+    for (Callable<?> result : results) {
+      completed.add(clients.submit(result));
+    }
+    for (Future<?> future : completed) {
+      future.get();
+    }
+    run.finished(workflows);
+  }
+
+  private static WorkflowOptions options(String taskList) {
+    return new WorkflowOptions.Builder()
+        .setTaskList(taskList)
+        .setExecutionStartToCloseTimeout(Duration.ofMinutes(10))
+        .build();
+  }
+
+  /**
+   * Fails the first {@value #PAYMENT_FAILURES} attempts of every account, so each workflow goes through activity retries.
+   */
+  public static class FlakyPaymentActivity implements PaymentActivity {
+
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    @Override
+    public String makePayment(String amount, String account) {
+      if (attempts.computeIfAbsent(account, key -> new AtomicInteger()).incrementAndGet() <= PAYMENT_FAILURES) {
+        throw new RuntimeException("RestClientException");
+      }
+      return "PAYMENT OF AMOUNT " + amount + " TO ACCOUNT " + account + " DONE";
+    }
+  }
+}
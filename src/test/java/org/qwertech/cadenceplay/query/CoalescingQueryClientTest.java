@@ -0,0 +1,157 @@
+package org.qwertech.cadenceplay.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Ticker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.SneakyThrows;
+import org.junit.After;
+import org.junit.Test;
+
+public class CoalescingQueryClientTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicLong nanos = new AtomicLong();
+  private final Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+  };
+  private final FakeTransport transport = new FakeTransport();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  @SneakyThrows
+  public void mergesConcurrentIdenticalQueries() {
+    CoalescingQueryClient client = new CoalescingQueryClient(transport, 0, 0, ticker);
+    transport.block();
+    List<Future<String>> readers = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      readers.add(executor.submit(() -> client.query("wf", "getState", String.class)));
+    }
+    transport.awaitQueries(1);
+    Future<String> other = executor.submit(() -> client.query("other", "getState", String.class));
+    transport.awaitQueries(2);
+    while (client.getCoalesced() < 7) {
+      Thread.sleep(1);
+    }
+    transport.release();
+
+    for (Future<String> reader : readers) {
+      assertEquals("wf#1", reader.get(1, TimeUnit.SECONDS));
+    }
+    assertEquals("other#2", other.get(1, TimeUnit.SECONDS));
+    assertEquals(2, client.getQueries());
+    // nothing is cached without a cache
+    assertEquals("wf#3", client.query("wf", "getState", String.class));
+  }
+
+  @Test
+  public void doesNotRememberFailures() {
+    CoalescingQueryClient client = new CoalescingQueryClient(transport, 10, TimeUnit.SECONDS.toNanos(10), ticker);
+    transport.fail = true;
+    try {
+      client.query("wf", "getState", String.class);
+      fail("the query should fail");
+    } catch (IllegalStateException e) {
+      assertEquals("query failed", e.getMessage());
+    }
+    transport.fail = false;
+    assertEquals("wf#2", client.query("wf", "getState", String.class));
+  }
+
+  @Test
+  public void servesFromCacheUntilTtlOrSignal() {
+    CoalescingQueryClient client = new CoalescingQueryClient(transport, 10, TimeUnit.MILLISECONDS.toNanos(100), ticker);
+
+    String first = client.query("wf", "getState", String.class);
+    assertSame(first, client.query("wf", "getState", String.class));
+    assertEquals("other#2", client.query("other", "getState", String.class));
+    assertEquals(1, client.getCacheHits());
+
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(101));
+    assertEquals("wf#3", client.query("wf", "getState", String.class));
+
+    client.signal("wf", "update", "new");
+    assertEquals(1, transport.signals.get());
+    assertEquals("wf#4", client.query("wf", "getState", String.class));
+    // other workflows keep their entries
+    assertEquals("other#5", client.query("other", "getState", String.class));
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals("other#5", client.query("other", "getState", String.class));
+  }
+
+  @Test
+  @SneakyThrows
+  public void doesNotCacheQueryRacingWithSignal() {
+    CoalescingQueryClient client = new CoalescingQueryClient(transport, 10, TimeUnit.SECONDS.toNanos(10), ticker);
+    transport.block();
+    Future<String> before = executor.submit(() -> client.query("wf", "getState", String.class));
+    transport.awaitQueries(1);
+
+    client.signal("wf", "update", "new");
+    // not joined to the query sent before the signal
+    Future<String> after = executor.submit(() -> client.query("wf", "getState", String.class));
+    transport.awaitQueries(2);
+    transport.release();
+
+    assertEquals("wf#1", before.get(1, TimeUnit.SECONDS));
+    assertEquals("wf#2", after.get(1, TimeUnit.SECONDS));
+    assertEquals(0, client.getCoalesced());
+  }
+
+  private static class FakeTransport implements CoalescingQueryClient.Transport {
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger signals = new AtomicInteger();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile boolean fail;
+
+    void block() {
+      gate = new CountDownLatch(1);
+    }
+
+    void release() {
+      gate.countDown();
+    }
+
+    @SneakyThrows
+    void awaitQueries(int count) {
+      while (queries.get() < count) {
+        Thread.sleep(1);
+      }
+    }
+
+    @Override
+    @SneakyThrows
+    public Object query(String workflowId, String queryType, Class<?> resultClass, Object[] args) {
+      int query = queries.incrementAndGet();
+      gate.await();
+      if (fail) {
+        throw new IllegalStateException("query failed");
+      }
+      // a new String each time, so cache hits can be told from equal results
+      return new String(workflowId + "#" + query);
+    }
+
+    @Override
+    public void signal(String workflowId, String signalName, Object[] args) {
+      signals.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.qwertech.cadenceplay.subscription;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.uber.cadence.converter.DataConverter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+
+public class LocalStateListenersTest {
+
+  private final DataConverter converter = JacksonDataConverter.getInstance();
+  private final LocalStateListeners listeners = new LocalStateListeners(converter);
+
+  @Test
+  public void notifiesListenersOfNewVersionsOnce() {
+    List<Versioned<String>> changes = new ArrayList<>();
+    Runnable remove = listeners.listen("wf", String.class, changes::add);
+
+    listeners.stateChanged("wf", 1, converter.toData("first"));
+    // a retried local activity delivers the same version again
+    listeners.stateChanged("wf", 1, converter.toData("first"));
+    listeners.stateChanged("other", 2, converter.toData("other"));
+    listeners.stateChanged("wf", 2, converter.toData("second"));
+    remove.run();
+    listeners.stateChanged("wf", 3, converter.toData("third"));
+
+    assertEquals(2, changes.size());
+    assertEquals(new Versioned<>(1, "first"), changes.get(0));
+    assertEquals(new Versioned<>(2, "second"), changes.get(1));
+  }
+
+  @Test
+  public void awaitsNextVersion() throws Exception {
+    listeners.stateChanged("wf", 1, converter.toData("first"));
+    assertEquals(new Versioned<>(1, "first"), listeners.awaitNext("wf", 0, String.class, 1, TimeUnit.SECONDS));
+
+    CompletableFuture<Versioned<String>> next = CompletableFuture.supplyAsync(() -> {
+      try {
+        return listeners.awaitNext("wf", 1, String.class, 5, TimeUnit.SECONDS);
+      } catch (InterruptedException | TimeoutException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    listeners.stateChanged("wf", 2, converter.toData("second"));
+    assertEquals(new Versioned<>(2, "second"), next.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void awaitTimesOut() throws Exception {
+    listeners.stateChanged("wf", 1, converter.toData("first"));
+    try {
+      listeners.awaitNext("wf", 1, String.class, 10, TimeUnit.MILLISECONDS);
+      fail("no version after 1 was published");
+    } catch (TimeoutException e) {
+      assertEquals("No version of wf after 1 in 10 MILLISECONDS", e.getMessage());
+    }
+  }
+}
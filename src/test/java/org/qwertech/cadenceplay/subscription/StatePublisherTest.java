@@ -0,0 +1,325 @@
+package org.qwertech.cadenceplay.subscription;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.EventType;
+import com.uber.cadence.GetWorkflowExecutionHistoryRequest;
+import com.uber.cadence.GetWorkflowExecutionHistoryResponse;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.client.WorkflowClient;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.client.WorkflowStub;
+import com.uber.cadence.internal.common.WorkflowExecutionHistory;
+import com.uber.cadence.testing.TestEnvironmentOptions;
+import com.uber.cadence.testing.TestWorkflowEnvironment;
+import com.uber.cadence.worker.Worker;
+import com.uber.cadence.workflow.QueryMethod;
+import com.uber.cadence.workflow.SignalMethod;
+import com.uber.cadence.workflow.Workflow;
+import com.uber.cadence.workflow.WorkflowMethod;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qwertech.cadenceplay.JacksonDataConverter;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ConnectorActivity;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ConnectorActivityImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.LongWorkflow;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.LongWorkflowImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ShortWorkflow;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.ShortWorkflowImpl;
+import org.qwertech.cadenceplay.WorkflowUpdateAndQuery.SomeState;
+
+/**
+ * Runs {@link StatePublisher} and the subscribing sample workflows on the in-memory {@link TestWorkflowEnvironment}. Executions recorded with the sample
+ * workflows as they were before subscriptions are replayed with the current ones to check the {@link Workflow#DEFAULT_VERSION} branches.
+ */
+public class StatePublisherTest {
+
+  private static final String DOMAIN = "test-domain";
+  private static final String TASK_LIST = "subscription";
+  private static final String LEGACY_TASK_LIST = "legacy";
+  private static final String STATE_CHANGED = "stateChanged";
+  private static final String DONE = "done";
+
+  private TestWorkflowEnvironment environment;
+  private WorkflowClient client;
+  private Worker replayer;
+
+  @Before
+  public void setUp() {
+    environment = TestWorkflowEnvironment.newInstance(new TestEnvironmentOptions.Builder()
+        .setDomain(DOMAIN)
+        .setDataConverter(JacksonDataConverter.getInstance())
+        .build());
+    client = environment.newWorkflowClient();
+    Worker worker = environment.newWorker(TASK_LIST);
+    worker.registerWorkflowImplementationTypes(PublisherWorkflowImpl.class, SubscriberWorkflowImpl.class);
+    Worker samples = environment.newWorker(WorkflowUpdateAndQuery.TASK_LIST);
+    samples.registerWorkflowImplementationTypes(LongWorkflowImpl.class, ShortWorkflowImpl.class);
+    samples.registerActivitiesImplementations(new ConnectorActivityImpl(client));
+    Worker legacy = environment.newWorker(LEGACY_TASK_LIST);
+    legacy.registerWorkflowImplementationTypes(LegacyLongWorkflowImpl.class, LegacyShortWorkflowImpl.class);
+    legacy.registerActivitiesImplementations(new ConnectorActivityImpl(client));
+    replayer = environment.newWorker("replay");
+    replayer.registerWorkflowImplementationTypes(LongWorkflowImpl.class, ShortWorkflowImpl.class);
+    environment.start();
+  }
+
+  @After
+  public void tearDown() {
+    environment.close();
+  }
+
+  @Test
+  public void deliversEveryVersionOnce() throws InterruptedException {
+    PublisherWorkflow publisher = start("publisher");
+    SubscriberWorkflow subscriber = client.newWorkflowStub(SubscriberWorkflow.class, options(TASK_LIST, "subscriber"));
+    WorkflowClient.start(subscriber::collect, DONE);
+
+    publisher.subscribe("subscriber");
+    awaitCondition(() -> subscriber.getVersions().length == 1);
+    for (String state : new String[]{"first", "second", "third"}) {
+      int received = subscriber.getVersions().length;
+      publisher.update(state);
+      awaitCondition(() -> subscriber.getVersions().length > received);
+    }
+
+    assertArrayEquals(new long[]{0, 1, 2, 3}, subscriber.getVersions());
+  }
+
+  @Test
+  public void dropsClosedSubscribers() throws InterruptedException {
+    PublisherWorkflow publisher = start("publisher");
+    SubscriberWorkflow subscriber = client.newWorkflowStub(SubscriberWorkflow.class, options(TASK_LIST, "subscriber"));
+    WorkflowClient.start(subscriber::collect, DONE);
+    publisher.subscribe("subscriber");
+    awaitCondition(() -> subscriber.getVersions().length == 1);
+    assertEquals(Collections.singletonList("subscriber"), publisher.getSubscribers());
+
+    publisher.update(DONE);
+    WorkflowStub.fromTyped(subscriber).getResult(Void.class);
+    publisher.update("after the subscriber closed");
+
+    awaitCondition(() -> publisher.getSubscribers().isEmpty());
+  }
+
+  @Test
+  public void subscribesOnNewExecutions() throws Exception {
+    LongWorkflow longWorkflow = client.newWorkflowStub(LongWorkflow.class, options(WorkflowUpdateAndQuery.TASK_LIST, "long"));
+    WorkflowExecution longExecution = WorkflowClient.start(longWorkflow::startLongProcess);
+    ShortWorkflow shortWorkflow = client.newWorkflowStub(ShortWorkflow.class, options(WorkflowUpdateAndQuery.TASK_LIST, "short"));
+    WorkflowExecution shortExecution = WorkflowClient.start(shortWorkflow::getStateFromLong, "long");
+
+    assertEquals("123", WorkflowStub.fromTyped(shortWorkflow).getResult(SomeState.class).getSomeData());
+    longWorkflow.update("ByeData");
+    WorkflowStub.fromTyped(longWorkflow).getResult(Void.class);
+
+    List<HistoryEvent> shortHistory = history(shortExecution);
+    assertTrue(contains(shortHistory, EventType.MarkerRecorded));
+    assertFalse(contains(shortHistory, EventType.ActivityTaskScheduled));
+    replayer.replayWorkflowExecution(new WorkflowExecutionHistory(shortHistory));
+    replayer.replayWorkflowExecution(new WorkflowExecutionHistory(history(longExecution)));
+  }
+
+  @Test
+  public void replaysExecutionsStartedBeforeSubscriptionsThroughConnectorActivity() throws Exception {
+    LongWorkflow longWorkflow = client.newWorkflowStub(LongWorkflow.class, options(LEGACY_TASK_LIST, "legacy-long"));
+    WorkflowExecution longExecution = WorkflowClient.start(longWorkflow::startLongProcess);
+    ShortWorkflow shortWorkflow = client.newWorkflowStub(ShortWorkflow.class, options(LEGACY_TASK_LIST, "legacy-short"));
+    WorkflowExecution shortExecution = WorkflowClient.start(shortWorkflow::getStateFromLong, "legacy-long");
+
+    assertEquals("123", WorkflowStub.fromTyped(shortWorkflow).getResult(SomeState.class).getSomeData());
+    longWorkflow.update("ByeData");
+    WorkflowStub.fromTyped(longWorkflow).getResult(Void.class);
+
+    List<HistoryEvent> shortHistory = history(shortExecution);
+    assertFalse(contains(shortHistory, EventType.MarkerRecorded));
+    assertTrue(contains(shortHistory, EventType.ActivityTaskScheduled));
+    replayer.replayWorkflowExecution(new WorkflowExecutionHistory(shortHistory));
+    replayer.replayWorkflowExecution(new WorkflowExecutionHistory(history(longExecution)));
+  }
+
+  private PublisherWorkflow start(String workflowId) {
+    PublisherWorkflow publisher = client.newWorkflowStub(PublisherWorkflow.class, options(TASK_LIST, workflowId));
+    WorkflowClient.start(publisher::publish);
+    return publisher;
+  }
+
+  private static WorkflowOptions options(String taskList, String workflowId) {
+    return new WorkflowOptions.Builder()
+        .setTaskList(taskList)
+        .setWorkflowId(workflowId)
+        .setExecutionStartToCloseTimeout(Duration.ofMinutes(10))
+        .build();
+  }
+
+  private List<HistoryEvent> history(WorkflowExecution execution) throws Exception {
+    List<HistoryEvent> events = new ArrayList<>();
+    byte[] nextPageToken = null;
+    do {
+      GetWorkflowExecutionHistoryResponse page = environment.getWorkflowService().GetWorkflowExecutionHistory(new GetWorkflowExecutionHistoryRequest()
+          .setDomain(DOMAIN)
+          .setExecution(execution)
+          .setNextPageToken(nextPageToken));
+      events.addAll(page.getHistory().getEvents());
+      nextPageToken = page.getNextPageToken();
+    } while (nextPageToken != null && nextPageToken.length > 0);
+    return events;
+  }
+
+  private static boolean contains(List<HistoryEvent> history, EventType type) {
+    return history.stream().anyMatch(event -> event.getEventType() == type);
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue("condition not met within 10s", System.nanoTime() - deadline < 0);
+      Thread.sleep(10);
+    }
+  }
+
+  public interface PublisherWorkflow {
+
+    @WorkflowMethod
+    void publish();
+
+    @SignalMethod
+    void subscribe(String workflowId);
+
+    @SignalMethod
+    void update(String state);
+
+    @QueryMethod
+    List<String> getSubscribers();
+  }
+
+  /**
+   * Publishes every change until the test environment is closed.
+   */
+  public static class PublisherWorkflowImpl implements PublisherWorkflow {
+
+    private final StatePublisher<String> publisher = new StatePublisher<>(STATE_CHANGED, JacksonDataConverter.getInstance(), "initial");
+
+    @Override
+    public void publish() {
+      while (true) {
+        Workflow.await(publisher::isPending);
+        publisher.publish();
+      }
+    }
+
+    @Override
+    public void subscribe(String workflowId) {
+      publisher.subscribe(workflowId);
+    }
+
+    @Override
+    public void update(String state) {
+      publisher.update(state);
+    }
+
+    @Override
+    public List<String> getSubscribers() {
+      return new ArrayList<>(publisher.getSubscribers());
+    }
+  }
+
+  public interface SubscriberWorkflow {
+
+    @WorkflowMethod
+    void collect(String lastState);
+
+    @SignalMethod(name = STATE_CHANGED)
+    void stateChanged(long version, String state);
+
+    @QueryMethod
+    long[] getVersions();
+  }
+
+  /**
+   * Records every version it is signaled and completes on {@code lastState}.
+   */
+  public static class SubscriberWorkflowImpl implements SubscriberWorkflow {
+
+    private final List<Long> versions = new ArrayList<>();
+    private String state;
+
+    @Override
+    public void collect(String lastState) {
+      Workflow.await(() -> lastState.equals(state));
+    }
+
+    @Override
+    public void stateChanged(long version, String state) {
+      versions.add(version);
+      this.state = state;
+    }
+
+    @Override
+    public long[] getVersions() {
+      return versions.stream().mapToLong(Long::longValue).toArray();
+    }
+  }
+
+  /**
+   * {@link LongWorkflowImpl} before subscriptions.
+   */
+  public static class LegacyLongWorkflowImpl implements LongWorkflow {
+
+    private final SomeState state = new SomeState("someInitialData");
+
+    @Override
+    public void startLongProcess() {
+      Workflow.await(() -> state.getSomeData().equals("ByeData"));
+    }
+
+    @Override
+    public void update(String someNewData) {
+      state.setSomeData(someNewData);
+    }
+
+    @Override
+    public void subscribe(String workflowId) {
+    }
+
+    @Override
+    public void unsubscribe(String workflowId) {
+    }
+
+    @Override
+    public SomeState getState() {
+      return state;
+    }
+  }
+
+  /**
+   * {@link ShortWorkflowImpl} before subscriptions.
+   */
+  public static class LegacyShortWorkflowImpl implements ShortWorkflow {
+
+    private final ConnectorActivity connectorActivity = Workflow.newActivityStub(ConnectorActivity.class);
+
+    @Override
+    public SomeState getStateFromLong(String longWorkflowId) {
+      connectorActivity.updateState(longWorkflowId, "123");
+      Workflow.await(() -> connectorActivity.getState(longWorkflowId).getSomeData().equals("123"));
+      return connectorActivity.getState(longWorkflowId);
+    }
+
+    @Override
+    public void stateChanged(long version, SomeState state) {
+    }
+  }
+}
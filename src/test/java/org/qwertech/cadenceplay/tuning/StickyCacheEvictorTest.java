@@ -0,0 +1,160 @@
+package org.qwertech.cadenceplay.tuning;
+
+import static org.junit.Assert.assertEquals;
+
+import com.uber.cadence.Decision;
+import com.uber.cadence.DecisionTaskScheduledEventAttributes;
+import com.uber.cadence.DecisionType;
+import com.uber.cadence.EventType;
+import com.uber.cadence.History;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.PollForDecisionTaskRequest;
+import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.ResetStickyTaskListRequest;
+import com.uber.cadence.RespondDecisionTaskCompletedRequest;
+import com.uber.cadence.StickyExecutionAttributes;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.SneakyThrows;
+import org.junit.Before;
+import org.junit.Test;
+import org.qwertech.cadenceplay.tuning.WorkflowThreadMonitor.Snapshot;
+
+public class StickyCacheEvictorTest {
+
+  private final List<String> resets = new CopyOnWriteArrayList<>();
+  private final List<String> invalidated = new CopyOnWriteArrayList<>();
+  private final AtomicInteger taskIds = new AtomicInteger();
+  private volatile String nextRunId;
+  private volatile int decisionTimeoutSeconds = 10;
+  private volatile Runnable onReset = () -> {
+  };
+  private StickyCacheEvictor evictor;
+
+  @Before
+  public void setUp() {
+    evictor = evictor(new WorkflowThreadMonitor(5));
+  }
+
+  @Test
+  public void evictsIdleCachedExecutionsOnly() throws InterruptedException {
+    decide("a", DecisionType.StartTimer);
+    Thread.sleep(20);
+    decide("b", DecisionType.StartTimer);
+    poll("processing");
+    decide("completed", DecisionType.CompleteWorkflowExecution);
+
+    assertEquals(2, evictor.evict(3));
+
+    assertEquals(Arrays.asList("a", "b"), resets);
+    assertEquals(Arrays.asList("a", "b"), invalidated);
+    assertEquals(1, evictor.getCachedCount());
+  }
+
+  @Test
+  public void evictsExecutionsUsuallyIdleForLongFirst() throws InterruptedException {
+    decide("waitingForSignal", DecisionType.StartTimer);
+    Thread.sleep(150);
+    decide("leastRecentlyUsed", DecisionType.StartTimer);
+    Thread.sleep(150);
+    decide("waitingForSignal", DecisionType.StartTimer);
+
+    evictor.evict(1);
+
+    assertEquals(Collections.singletonList("waitingForSignal"), resets);
+  }
+
+  @Test
+  public void evictsWhenFreeThreadsRunLow() {
+    evictor = evictor(new WorkflowThreadMonitor(5) {
+      @Override
+      public Snapshot scan() {
+        return new Snapshot(5, 5, 0, Collections.emptyList());
+      }
+    });
+    decide("a", DecisionType.StartTimer);
+    decide("b", DecisionType.StartTimer);
+
+    assertEquals(1, evictor.evictIfStarved());
+    assertEquals(1, evictor.getCachedCount());
+  }
+
+  @Test
+  public void keepsExecutionPolledWhileBeingEvicted() {
+    decide("a", DecisionType.StartTimer);
+    onReset = () -> poll("a");
+
+    assertEquals(0, evictor.evict(1));
+
+    assertEquals(Collections.singletonList("a"), resets);
+    assertEquals(Collections.emptyList(), invalidated);
+    assertEquals(1, evictor.getCachedCount());
+    assertEquals(0, evictor.evict(1));
+  }
+
+  @Test
+  public void expiresDecisionTasksNeverRespondedTo() throws InterruptedException {
+    decisionTimeoutSeconds = 1;
+    poll("dropped");
+
+    assertEquals(0, evictor.expire(0, TimeUnit.SECONDS));
+    assertEquals(0, evictor.evict(1));
+    Thread.sleep(1100);
+    assertEquals(1, evictor.expire(0, TimeUnit.SECONDS));
+
+    assertEquals(0, evictor.getProcessingCount());
+    assertEquals(1, evictor.evict(1));
+    assertEquals(Collections.singletonList("dropped"), invalidated);
+  }
+
+  private StickyCacheEvictor evictor(WorkflowThreadMonitor monitor) {
+    StickyCacheEvictor evictor = new StickyCacheEvictor(service(), "test-domain", monitor, 1);
+    evictor.attach(invalidated::add);
+    return evictor;
+  }
+
+  @SneakyThrows
+  private void decide(String runId, DecisionType decision) {
+    PollForDecisionTaskResponse task = poll(runId);
+    evictor.getService().RespondDecisionTaskCompleted(new RespondDecisionTaskCompletedRequest()
+        .setTaskToken(task.getTaskToken())
+        .setDecisions(Collections.singletonList(new Decision().setDecisionType(decision)))
+        .setStickyAttributes(new StickyExecutionAttributes()));
+  }
+
+  @SneakyThrows
+  private PollForDecisionTaskResponse poll(String runId) {
+    nextRunId = runId;
+    return evictor.getService().PollForDecisionTask(new PollForDecisionTaskRequest());
+  }
+
+  private IWorkflowService service() {
+    return (IWorkflowService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{IWorkflowService.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "PollForDecisionTask":
+          return new PollForDecisionTaskResponse()
+              .setTaskToken(("task-" + taskIds.incrementAndGet()).getBytes(StandardCharsets.UTF_8))
+              .setWorkflowExecution(new WorkflowExecution().setWorkflowId("wf-" + nextRunId).setRunId(nextRunId))
+              .setHistory(new History().setEvents(Collections.singletonList(new HistoryEvent()
+                  .setEventType(EventType.DecisionTaskScheduled)
+                  .setDecisionTaskScheduledEventAttributes(new DecisionTaskScheduledEventAttributes().setStartToCloseTimeoutSeconds(decisionTimeoutSeconds)))));
+        case "ResetStickyTaskList":
+          resets.add(((ResetStickyTaskListRequest) args[0]).getExecution().getRunId());
+          onReset.run();
+          return null;
+        case "RespondDecisionTaskCompleted":
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+}
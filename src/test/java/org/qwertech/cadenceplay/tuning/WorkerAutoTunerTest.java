@@ -0,0 +1,205 @@
+package org.qwertech.cadenceplay.tuning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.PollForActivityTaskRequest;
+import com.uber.cadence.PollForActivityTaskResponse;
+import com.uber.cadence.RespondActivityTaskCompletedRequest;
+import com.uber.cadence.TaskList;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import lombok.SneakyThrows;
+import org.junit.After;
+import org.junit.Test;
+import org.qwertech.cadenceplay.tuning.Adjustment.Knob;
+import org.qwertech.cadenceplay.tuning.Adjustment.TaskKind;
+import org.qwertech.cadenceplay.tuning.TaskGate.PolledTask;
+
+public class WorkerAutoTunerTest {
+
+  private static final TuningBounds DECISIONS = new TuningBounds(1, 2, 1, 2);
+
+  private final BlockingQueue<PollForActivityTaskResponse> tasks = new LinkedBlockingQueue<>();
+  private final AtomicInteger polling = new AtomicInteger();
+  private final LongAccumulator peakPolling = new LongAccumulator(Math::max, 0);
+  private final AtomicInteger taskIds = new AtomicInteger();
+  private WorkerAutoTuner tuner;
+
+  @After
+  public void tearDown() {
+    if (tuner != null) {
+      tuner.close();
+    }
+  }
+
+  @Test
+  public void limitsActivePollers() throws Exception {
+    tuner = new WorkerAutoTuner(service(), DECISIONS, new TuningBounds(1, 4, 1, 4), Duration.ofMillis(100));
+
+    CompletableFuture<?>[] polls = new CompletableFuture<?>[4];
+    for (int i = 0; i < polls.length; i++) {
+      polls[i] = CompletableFuture.runAsync(this::poll);
+    }
+    CompletableFuture.allOf(polls).get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, peakPolling.get());
+  }
+
+  @Test
+  public void addsPollerWhenTasksWaitWithFreeSlots() {
+    tuner = new WorkerAutoTuner(service(), DECISIONS, new TuningBounds(1, 4, 1, 4), Duration.ofMillis(100));
+
+    addTask(500);
+    complete(poll());
+    tuner.tune();
+
+    assertEquals(2, tuner.getPollers(TaskKind.ACTIVITY));
+    Adjustment adjustment = tuner.getAdjustments().get(0);
+    assertEquals(TaskKind.ACTIVITY, adjustment.getKind());
+    assertEquals(Knob.POLLERS, adjustment.getKnob());
+    assertEquals(1, adjustment.getFrom());
+    assertEquals(2, adjustment.getTo());
+  }
+
+  @Test
+  public void removesPollerOnEmptyPolls() {
+    tuner = new WorkerAutoTuner(service(), DECISIONS, new TuningBounds(1, 4, 1, 4), Duration.ofMillis(100));
+    addTask(500);
+    complete(poll());
+    tuner.tune();
+
+    poll();
+    tuner.tune();
+
+    assertEquals(1, tuner.getPollers(TaskKind.ACTIVITY));
+  }
+
+  @Test
+  public void lowersConcurrencyWhenIdleAndRaisesItWhenSaturated() throws Exception {
+    tuner = new WorkerAutoTuner(service(), DECISIONS, new TuningBounds(4, 4, 2, 8), Duration.ofMillis(100));
+    poll();
+    tuner.tune();
+    assertEquals(6, tuner.getConcurrency(TaskKind.ACTIVITY));
+
+    for (int i = 0; i < 7; i++) {
+      addTask(500);
+    }
+    for (int i = 0; i < 6; i++) {
+      assertTrue(poll().getTaskToken() != null);
+    }
+    CompletableFuture<PollForActivityTaskResponse> waiting = CompletableFuture.supplyAsync(this::poll);
+    Thread.sleep(200);
+    assertFalse(waiting.isDone());
+
+    tuner.tune();
+
+    assertEquals(7, tuner.getConcurrency(TaskKind.ACTIVITY));
+    assertTrue(waiting.get(5, TimeUnit.SECONDS).getTaskToken() != null);
+  }
+
+  @Test
+  public void freesSlotWhenTaskIsResponded() throws Exception {
+    tuner = new WorkerAutoTuner(service(), DECISIONS, new TuningBounds(1, 1, 1, 1), Duration.ofMillis(100));
+    addTask(0);
+    addTask(0);
+
+    PollForActivityTaskResponse first = poll();
+    CompletableFuture<PollForActivityTaskResponse> second = CompletableFuture.supplyAsync(this::poll);
+    Thread.sleep(200);
+    assertFalse(second.isDone());
+    complete(first);
+
+    assertTrue(second.get(5, TimeUnit.SECONDS).getTaskToken() != null);
+  }
+
+  @Test
+  public void limitsPollersOfEachTaskListSeparately() throws Exception {
+    tuner = new WorkerAutoTuner(service(), DECISIONS, new TuningBounds(1, 4, 1, 4), Duration.ofMillis(100));
+
+    CompletableFuture<?>[] polls = new CompletableFuture<?>[4];
+    for (int i = 0; i < polls.length; i++) {
+      String taskList = i % 2 == 0 ? "regular" : "sticky";
+      polls[i] = CompletableFuture.runAsync(() -> poll(taskList));
+    }
+    CompletableFuture.allOf(polls).get(5, TimeUnit.SECONDS);
+
+    assertEquals(2, peakPolling.get());
+  }
+
+  @Test
+  public void expiresTasksAfterTheirOwnTimeout() throws Exception {
+    TaskGate gate = new TaskGate(1, 3);
+    long hour = TimeUnit.HOURS.toNanos(1);
+    gate.poll("tasks", () -> "long", token -> new PolledTask(bytes(token), -1, hour, 0));
+    gate.poll("tasks", () -> "closing", token -> new PolledTask(bytes(token), -1, TimeUnit.MILLISECONDS.toNanos(100), 0));
+    gate.poll("tasks", () -> "heartbeating", token -> new PolledTask(bytes(token), -1, hour, TimeUnit.MILLISECONDS.toNanos(300)));
+
+    Thread.sleep(200);
+    assertEquals(0, gate.expire(1, TimeUnit.SECONDS));
+    gate.heartbeat(bytes("heartbeating"));
+    Thread.sleep(200);
+    assertEquals(1, gate.expire(0, TimeUnit.MILLISECONDS));
+    Thread.sleep(300);
+    assertEquals(1, gate.expire(0, TimeUnit.MILLISECONDS));
+    assertEquals(1, gate.window().getInFlight());
+  }
+
+  private static byte[] bytes(String token) {
+    return token.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void addTask(long scheduleToStartMillis) {
+    long started = System.currentTimeMillis() * 1_000_000;
+    tasks.add(new PollForActivityTaskResponse()
+        .setTaskToken(("task-" + taskIds.incrementAndGet()).getBytes(StandardCharsets.UTF_8))
+        .setScheduledTimestampOfThisAttempt(started - TimeUnit.MILLISECONDS.toNanos(scheduleToStartMillis))
+        .setStartedTimestamp(started)
+        .setStartToCloseTimeoutSeconds(60));
+  }
+
+  private PollForActivityTaskResponse poll() {
+    return poll("activities");
+  }
+
+  @SneakyThrows
+  private PollForActivityTaskResponse poll(String taskList) {
+    return tuner.getService().PollForActivityTask(new PollForActivityTaskRequest().setTaskList(new TaskList().setName(taskList)));
+  }
+
+  @SneakyThrows
+  private void complete(PollForActivityTaskResponse task) {
+    tuner.getService().RespondActivityTaskCompleted(new RespondActivityTaskCompletedRequest().setTaskToken(task.getTaskToken()));
+  }
+
+  /**
+   * Long polls for 50ms, returning an empty response if no task was added.
+   */
+  private IWorkflowService service() {
+    return (IWorkflowService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{IWorkflowService.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "PollForActivityTask":
+          peakPolling.accumulate(polling.incrementAndGet());
+          try {
+            PollForActivityTaskResponse task = tasks.poll(50, TimeUnit.MILLISECONDS);
+            return task == null ? new PollForActivityTaskResponse() : task;
+          } finally {
+            polling.decrementAndGet();
+          }
+        case "RespondActivityTaskCompleted":
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+}
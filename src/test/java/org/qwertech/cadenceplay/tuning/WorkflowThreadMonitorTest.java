@@ -0,0 +1,64 @@
+package org.qwertech.cadenceplay.tuning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.qwertech.cadenceplay.tuning.WorkflowThreadMonitor.BlockingThread;
+import org.qwertech.cadenceplay.tuning.WorkflowThreadMonitor.Snapshot;
+
+public class WorkflowThreadMonitorTest {
+
+  private static final StackTraceElement WORKFLOW_THREAD = frame(WorkflowThreadMonitor.WORKFLOW_THREAD_CLASS + "$RunnableWrapper", "run");
+  private static final StackTraceElement WORKFLOW_METHOD = frame("org.qwertech.cadenceplay.HelloAwaitingActivity$GreetingWorkflowImpl", "getGreeting");
+
+  @Test
+  public void tellsParkedFromBlockingWorkflowThreads() {
+    Map<Thread, StackTraceElement[]> threads = new HashMap<>();
+    threads.put(new Thread("parked"), new StackTraceElement[]{
+        frame("jdk.internal.misc.Unsafe", "park"),
+        frame("java.util.concurrent.locks.LockSupport", "park"),
+        frame("com.uber.cadence.internal.sync.WorkflowThreadContext", "yield"),
+        frame("com.uber.cadence.workflow.Workflow", "await"),
+        WORKFLOW_METHOD,
+        WORKFLOW_THREAD});
+    threads.put(new Thread("sleeping"), new StackTraceElement[]{
+        frame("java.lang.Thread", "sleep"),
+        WORKFLOW_METHOD,
+        WORKFLOW_THREAD});
+    threads.put(new Thread("other"), new StackTraceElement[]{
+        frame("java.lang.Thread", "sleep"),
+        frame("org.qwertech.cadenceplay.Utils", "run")});
+
+    Snapshot snapshot = new WorkflowThreadMonitor(5).scan(threads);
+
+    assertEquals(1, snapshot.getParked());
+    assertEquals(1, snapshot.getBlocking().size());
+    BlockingThread blocking = snapshot.getBlocking().get(0);
+    assertEquals("sleeping", blocking.getThreadName());
+    assertTrue(blocking.getBlockingCall().startsWith("java.lang.Thread.sleep"));
+    assertTrue(blocking.getLocation().startsWith(WORKFLOW_METHOD.getClassName() + ".getGreeting"));
+    assertEquals(2, snapshot.getTaken());
+    assertFalse(snapshot.isExhausted());
+  }
+
+  @Test
+  public void flagsExhaustion() {
+    Map<Thread, StackTraceElement[]> threads = new HashMap<>();
+    for (int i = 0; i < 2; i++) {
+      threads.put(new Thread("parked-" + i), new StackTraceElement[]{
+          frame("java.lang.Object", "wait"),
+          frame("com.uber.cadence.internal.sync.WorkflowThreadContext", "yield"),
+          WORKFLOW_THREAD});
+    }
+
+    assertTrue(new WorkflowThreadMonitor(2).scan(threads).isExhausted());
+  }
+
+  private static StackTraceElement frame(String className, String method) {
+    return new StackTraceElement(className, method, null, -1);
+  }
+}
@@ -0,0 +1,111 @@
+package org.qwertech.cadenceplay.visibility;
+
+import com.uber.cadence.ListClosedWorkflowExecutionsRequest;
+import com.uber.cadence.ListClosedWorkflowExecutionsResponse;
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.ListOpenWorkflowExecutionsResponse;
+import com.uber.cadence.StartTimeFilter;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowType;
+import com.uber.cadence.WorkflowTypeFilter;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory visibility store behind an {@link IWorkflowService} proxy, pages newest first like the Cadence frontend. Like Cadence, it filters closed
+ * executions on close time.
+ */
+class FakeVisibilityService {
+
+  static final String TYPE = "GeneratedWorkflow::process";
+
+  final List<WorkflowExecutionInfo> open = new CopyOnWriteArrayList<>();
+  final List<WorkflowExecutionInfo> closed = new CopyOnWriteArrayList<>();
+  final AtomicInteger calls = new AtomicInteger();
+  /**
+   * Start time filters of the open listings, first pages only.
+   */
+  final List<StartTimeFilter> openFilters = new CopyOnWriteArrayList<>();
+
+  WorkflowExecutionInfo start(String workflowId, long startTime) {
+    return start(workflowId, TYPE, startTime);
+  }
+
+  WorkflowExecutionInfo start(String workflowId, String type, long startTime) {
+    WorkflowExecutionInfo execution = new WorkflowExecutionInfo()
+        .setExecution(new WorkflowExecution().setWorkflowId(workflowId).setRunId(UUID.randomUUID().toString()))
+        .setType(new WorkflowType().setName(type))
+        .setStartTime(startTime);
+    open.add(execution);
+    return execution;
+  }
+
+  void close(WorkflowExecutionInfo execution, long closeTime) {
+    open.remove(execution);
+    closed.add(execution.setCloseTime(closeTime));
+  }
+
+  IWorkflowService service() {
+    return (IWorkflowService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{IWorkflowService.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "ListOpenWorkflowExecutions":
+          return listOpen((ListOpenWorkflowExecutionsRequest) args[0]);
+        case "ListClosedWorkflowExecutions":
+          return listClosed((ListClosedWorkflowExecutionsRequest) args[0]);
+        case "close":
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  private ListOpenWorkflowExecutionsResponse listOpen(ListOpenWorkflowExecutionsRequest request) {
+    if (request.getNextPageToken() == null) {
+      openFilters.add(request.getStartTimeFilter());
+    }
+    List<WorkflowExecutionInfo> matching = matching(open, WorkflowExecutionInfo::getStartTime, request.getTypeFilter(), request.getStartTimeFilter());
+    int from = offset(request.getNextPageToken());
+    int to = Math.min(from + request.getMaximumPageSize(), matching.size());
+    return new ListOpenWorkflowExecutionsResponse()
+        .setExecutions(new ArrayList<>(matching.subList(from, to)))
+        .setNextPageToken(token(to, matching.size()));
+  }
+
+  private ListClosedWorkflowExecutionsResponse listClosed(ListClosedWorkflowExecutionsRequest request) {
+    List<WorkflowExecutionInfo> matching = matching(closed, WorkflowExecutionInfo::getCloseTime, request.getTypeFilter(), request.getStartTimeFilter());
+    int from = offset(request.getNextPageToken());
+    int to = Math.min(from + request.getMaximumPageSize(), matching.size());
+    return new ListClosedWorkflowExecutionsResponse()
+        .setExecutions(new ArrayList<>(matching.subList(from, to)))
+        .setNextPageToken(token(to, matching.size()));
+  }
+
+  private List<WorkflowExecutionInfo> matching(List<WorkflowExecutionInfo> executions, ToLongFunction<WorkflowExecutionInfo> time,
+      WorkflowTypeFilter typeFilter, StartTimeFilter timeFilter) {
+    calls.incrementAndGet();
+    return executions.stream()
+        .filter(e -> typeFilter == null || e.getType().getName().equals(typeFilter.getName()))
+        .filter(e -> time.applyAsLong(e) >= timeFilter.getEarliestTime() && time.applyAsLong(e) <= timeFilter.getLatestTime())
+        .sorted(Comparator.comparingLong(time).reversed())
+        .collect(Collectors.toList());
+  }
+
+  private static int offset(byte[] nextPageToken) {
+    return nextPageToken == null ? 0 : ByteBuffer.wrap(nextPageToken).getInt();
+  }
+
+  private static byte[] token(int to, int size) {
+    return to < size ? ByteBuffer.allocate(4).putInt(to).array() : null;
+  }
+}
@@ -0,0 +1,134 @@
+package org.qwertech.cadenceplay.visibility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.WorkflowExecutionInfo;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.qwertech.cadenceplay.visibility.OpenWorkflowIndex.Refresh;
+
+public class OpenWorkflowIndexTest {
+
+  private static final long NOW = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final FakeVisibilityService visibility = new FakeVisibilityService();
+  private Path file;
+
+  @Before
+  public void setUp() {
+    file = folder.getRoot().toPath().resolve("open.idx");
+  }
+
+  @Test
+  public void buildsFromFullListing() {
+    for (int i = 0; i < 100; i++) {
+      visibility.start("wf-" + i, NOW - i * SECOND);
+    }
+    visibility.start("other", "OtherWorkflow::run", NOW);
+
+    OpenWorkflowIndex index = index(null);
+    index.refresh();
+
+    assertEquals(101, index.size());
+    assertEquals(100L, (long) index.countByType().get(FakeVisibilityService.TYPE));
+    assertEquals(NOW - 99 * SECOND, index.get("wf-99").getStartTime());
+  }
+
+  @Test
+  public void refreshesIncrementally() {
+    for (int i = 0; i < 100; i++) {
+      visibility.start("wf-" + i, NOW - 1000 * SECOND + i * SECOND);
+    }
+    OpenWorkflowIndex index = index(FakeVisibilityService.TYPE);
+    index.refresh();
+    WorkflowExecutionInfo closing = visibility.open.get(0);
+    visibility.close(closing, NOW + SECOND);
+    visibility.start("new", NOW + 2 * SECOND);
+    visibility.calls.set(0);
+
+    Refresh refresh = index.refresh();
+
+    assertEquals(1, refresh.getAdded());
+    assertEquals(1, refresh.getRemoved());
+    assertEquals(100, index.size());
+    assertTrue(index.contains("new"));
+    assertFalse(index.contains(closing.getExecution().getWorkflowId()));
+    assertEquals(2, visibility.calls.get());
+  }
+
+  @Test
+  public void seedsCloseCheckpointWithServerStartTimes() {
+    WorkflowExecutionInfo old = visibility.start("old", NOW - 1000 * SECOND);
+    visibility.start("recent", NOW - 10 * SECOND);
+    OpenWorkflowIndex index = index(FakeVisibilityService.TYPE);
+    index.refresh();
+    // closed with a server time behind the local clock
+    visibility.close(old, NOW - 500 * SECOND);
+
+    assertEquals(NOW - 1000 * SECOND, index.getCloseCheckpoint());
+    assertEquals(1, index.refresh().getRemoved());
+    assertFalse(index.contains("old"));
+    assertEquals(NOW - 500 * SECOND, index.getCloseCheckpoint());
+  }
+
+  @Test
+  public void keepsNewerRunOfClosedWorkflowId() {
+    WorkflowExecutionInfo first = visibility.start("wf", NOW);
+    OpenWorkflowIndex index = index(FakeVisibilityService.TYPE);
+    index.refresh();
+    visibility.close(first, NOW + SECOND);
+    WorkflowExecutionInfo second = visibility.start("wf", NOW + 2 * SECOND);
+
+    index.refresh();
+
+    assertEquals(second.getExecution().getRunId(), index.get("wf").getRunId());
+  }
+
+  @Test
+  public void resumesFromSavedFile() {
+    for (int i = 0; i < 10; i++) {
+      visibility.start("wf-" + i, NOW + i * SECOND);
+    }
+    index(FakeVisibilityService.TYPE).refresh();
+    visibility.close(visibility.open.get(0), NOW + 20 * SECOND);
+    visibility.calls.set(0);
+
+    OpenWorkflowIndex reloaded = index(FakeVisibilityService.TYPE);
+    assertEquals(10, reloaded.size());
+    assertEquals(NOW + 9 * SECOND, reloaded.getHighWaterMark());
+
+    reloaded.refresh();
+
+    assertEquals(9, reloaded.size());
+    assertNull(reloaded.get("wf-0"));
+    assertEquals(2, visibility.calls.get());
+  }
+
+  @Test
+  public void rebuildsFileOfAnotherType() {
+    visibility.start("wf", NOW);
+    visibility.start("other", "OtherWorkflow::run", NOW);
+    index(FakeVisibilityService.TYPE).refresh();
+
+    OpenWorkflowIndex index = index(null);
+    assertEquals(0, index.size());
+    index.refresh();
+
+    assertEquals(2, index.size());
+  }
+
+  private OpenWorkflowIndex index(String workflowType) {
+    return new OpenWorkflowIndex(visibility.service(), "domain", workflowType, file);
+  }
+}
@@ -0,0 +1,71 @@
+package org.qwertech.cadenceplay.visibility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.WorkflowExecutionInfo;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class ParallelOpenWorkflowListerTest {
+
+  private static final long NOW = TimeUnit.MILLISECONDS.toNanos(1_600_000_000_000L);
+
+  private final FakeVisibilityService visibility = new FakeVisibilityService();
+
+  @Test
+  public void listsEveryExecutionOnce() {
+    for (int i = 0; i < 1000; i++) {
+      visibility.start("wf-" + i, NOW - TimeUnit.SECONDS.toNanos(i));
+    }
+
+    Collection<WorkflowExecutionInfo> executions = new ParallelOpenWorkflowLister(visibility.service(), "domain", 4, 50).list(FakeVisibilityService.TYPE);
+
+    assertEquals(1000, executions.size());
+    assertEquals(1000, ids(executions).size());
+  }
+
+  @Test
+  public void splitsSkewedSlices() {
+    // a burst of executions in one second and a few old ones, the burst has to be split to be paged in parallel
+    for (int i = 0; i < 2000; i++) {
+      visibility.start("burst-" + i, NOW - TimeUnit.MILLISECONDS.toNanos(i % 1000) - i);
+    }
+    for (int i = 0; i < 10; i++) {
+      visibility.start("old-" + i, NOW - TimeUnit.DAYS.toNanos(30 + i));
+    }
+
+    Collection<WorkflowExecutionInfo> executions = new ParallelOpenWorkflowLister(visibility.service(), "domain", 4, 100).list(FakeVisibilityService.TYPE);
+
+    assertEquals(2010, ids(executions).size());
+    // initial slices end at the newest start time or long before the burst, a slice ending inside it is what is left of a split one
+    assertTrue(visibility.openFilters.stream()
+        .anyMatch(filter -> filter.getLatestTime() < NOW && filter.getLatestTime() > NOW - TimeUnit.SECONDS.toNanos(1)));
+  }
+
+  @Test
+  public void keepsExecutionsStartedAtSliceBoundaries() {
+    for (int i = 0; i < 300; i++) {
+      visibility.start("same-" + i, NOW);
+    }
+    visibility.start("older", NOW - TimeUnit.HOURS.toNanos(1));
+
+    Set<String> ids = ids(new ParallelOpenWorkflowLister(visibility.service(), "domain", 4, 7).list(FakeVisibilityService.TYPE));
+
+    assertEquals(301, ids.size());
+    assertTrue(ids.contains("older"));
+  }
+
+  @Test
+  public void listsNothingWithoutOpenExecutions() {
+    assertTrue(new ParallelOpenWorkflowLister(visibility.service(), "domain", 4).list(FakeVisibilityService.TYPE).isEmpty());
+    assertEquals(1, visibility.calls.get());
+  }
+
+  private static Set<String> ids(Collection<WorkflowExecutionInfo> executions) {
+    return executions.stream().map(e -> e.getExecution().getWorkflowId()).collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,92 @@
+package org.qwertech.cadenceplay.visibility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.StartTimeFilter;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowTypeFilter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.qwertech.cadenceplay.visibility.WorkflowExecutions.Page;
+
+public class WorkflowExecutionsTest {
+
+  private final FakeVisibilityService visibility = new FakeVisibilityService();
+
+  @Test
+  public void pagesUntilTokenIsEmpty() {
+    // an exact multiple of the page size must not cost an extra empty page
+    for (int i = 0; i < 30; i++) {
+      visibility.start("wf-" + i, i);
+    }
+
+    try (Stream<WorkflowExecutionInfo> executions = WorkflowExecutions.open(visibility.service(), request(10))) {
+      assertEquals(30, executions.count());
+    }
+    assertEquals(3, visibility.calls.get());
+  }
+
+  @Test
+  public void streamsNewestFirst() {
+    for (int i = 0; i < 25; i++) {
+      visibility.start("wf-" + i, i);
+    }
+
+    try (Stream<WorkflowExecutionInfo> executions = WorkflowExecutions.open(visibility.service(), request(7))) {
+      List<String> ids = executions.limit(3).map(e -> e.getExecution().getWorkflowId()).collect(Collectors.toList());
+      assertEquals(Arrays.asList("wf-24", "wf-23", "wf-22"), ids);
+    }
+  }
+
+  @Test
+  public void fetchesLazily() {
+    visibility.start("wf", 1);
+
+    Stream<WorkflowExecutionInfo> executions = WorkflowExecutions.open(visibility.service(), request(10));
+
+    assertEquals(0, visibility.calls.get());
+    executions.close();
+  }
+
+  @Test
+  public void prefetchesNextPageWhileCurrentIsConsumed() throws InterruptedException {
+    CountDownLatch secondPageRequested = new CountDownLatch(1);
+    AtomicInteger pages = new AtomicInteger();
+    Stream<WorkflowExecutionInfo> executions = WorkflowExecutions.stream(token -> {
+      if (pages.incrementAndGet() == 2) {
+        secondPageRequested.countDown();
+      }
+      return new Page(Arrays.asList(new WorkflowExecutionInfo(), new WorkflowExecutionInfo()), pages.get() < 3 ? new byte[]{1} : null);
+    });
+
+    Iterator<WorkflowExecutionInfo> iterator = executions.iterator();
+    iterator.next();
+
+    assertTrue(secondPageRequested.await(5, TimeUnit.SECONDS));
+    executions.close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void propagatesFetchFailures() {
+    WorkflowExecutions.stream(token -> {
+      throw new IllegalStateException("frontend unavailable");
+    }).count();
+  }
+
+  private static ListOpenWorkflowExecutionsRequest request(int pageSize) {
+    return new ListOpenWorkflowExecutionsRequest()
+        .setDomain("domain")
+        .setMaximumPageSize(pageSize)
+        .setTypeFilter(new WorkflowTypeFilter().setName(FakeVisibilityService.TYPE))
+        .setStartTimeFilter(new StartTimeFilter().setEarliestTime(0).setLatestTime(Long.MAX_VALUE));
+  }
+}
@@ -0,0 +1,81 @@
+package org.qwertech.cadenceplay.visibility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+
+public class WorkflowIdSetTest {
+
+  @Test
+  public void storesUuidsAndOtherIds() {
+    WorkflowIdSet set = new WorkflowIdSet();
+    String uuid = UUID.randomUUID().toString();
+
+    assertTrue(set.add(uuid));
+    assertFalse(set.add(uuid));
+    assertTrue(set.add("order-42"));
+    assertTrue(set.add(uuid.toUpperCase()));
+    assertTrue(set.add("00000000-0000-0000-0000-000000000000"));
+
+    assertEquals(4, set.size());
+    assertTrue(set.contains(uuid));
+    assertTrue(set.contains(uuid.toUpperCase()));
+    assertFalse(set.contains(UUID.randomUUID().toString()));
+    assertEquals(new HashSet<>(Arrays.asList(uuid, "order-42", uuid.toUpperCase(), "00000000-0000-0000-0000-000000000000")), copy(set));
+  }
+
+  @Test
+  public void behavesLikeHashSet() {
+    Random random = new Random(42);
+    WorkflowIdSet set = new WorkflowIdSet();
+    Set<String> expected = new HashSet<>();
+    String[] ids = new String[5000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i % 10 == 0 ? "wf-" + i : new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    for (int i = 0; i < 50_000; i++) {
+      String id = ids[random.nextInt(ids.length)];
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(id), set.remove(id));
+      } else {
+        assertEquals(expected.add(id), set.add(id));
+      }
+    }
+
+    assertEquals(expected.size(), set.size());
+    for (String id : ids) {
+      assertEquals(expected.contains(id), set.contains(id));
+    }
+    assertEquals(expected, copy(set));
+  }
+
+  @Test
+  public void diffsSnapshots() {
+    String kept = UUID.randomUUID().toString();
+    String closed = UUID.randomUUID().toString();
+    String started = UUID.randomUUID().toString();
+    WorkflowIdSet before = WorkflowIdSet.of(Arrays.asList(kept, closed, "legacy-1", "legacy-2"));
+    WorkflowIdSet after = WorkflowIdSet.of(Arrays.asList(kept, started, "legacy-2"));
+
+    assertEquals(new HashSet<>(Arrays.asList(closed, "legacy-1")), copy(before.difference(after)));
+    assertEquals(new HashSet<>(Arrays.asList(started)), copy(after.difference(before)));
+    assertEquals(new HashSet<>(Arrays.asList(kept, "legacy-2")), copy(before.intersection(after)));
+  }
+
+  private static Set<String> copy(WorkflowIdSet set) {
+    Set<String> ids = new HashSet<>();
+    set.forEach(ids::add);
+    Set<String> iterated = new HashSet<>();
+    set.iterator().forEachRemaining(iterated::add);
+    assertEquals(ids, iterated);
+    return ids;
+  }
+}